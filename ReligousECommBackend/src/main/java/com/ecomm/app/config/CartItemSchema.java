@@ -0,0 +1,119 @@
+package com.ecomm.app.config;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Gets cart_item ready for its unique (cart_id, product_id) key, uk_cart_item_cart_product.
+ *
+ * Carts written before the key existed can hold several lines for one product, and ddl-auto=update
+ * cannot add the constraint while they do: Hibernate only logs the failure. So before the
+ * EntityManagerFactory (and with it the schema update) is built, duplicate lines are merged into the
+ * oldest one with their quantities summed. Once every bean is up the key is checked for, and startup
+ * fails without it, since the cart upsert and the retry on a duplicate line both rely on it.
+ */
+@Configuration
+public class CartItemSchema implements InitializingBean, SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartItemSchema.class);
+
+    public static final String UNIQUE_LINE_KEY = "uk_cart_item_cart_product";
+
+    private static final String COUNT_DUPLICATED = "select count(*) from "
+            + "(select cart_id from cart_item group by cart_id, product_id having count(*) > 1) d";
+    // The derived tables keep MySQL from rejecting a subquery on the table being changed
+    private static final String SUM_INTO_OLDEST = "update cart_item set quantity = "
+            + "(select s.total from (select cart_id, product_id, sum(quantity) as total from cart_item "
+            + "group by cart_id, product_id) s where s.cart_id = cart_item.cart_id and s.product_id = cart_item.product_id) "
+            + "where id in (select k.id from (select min(id) as id from cart_item group by cart_id, product_id "
+            + "having count(*) > 1) k)";
+    private static final String DELETE_NEWER = "delete from cart_item where id not in "
+            + "(select k.id from (select min(id) as id from cart_item group by cart_id, product_id) k)";
+
+    private final DataSource dataSource;
+
+    public CartItemSchema(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Hibernate's schema update runs when the EntityManagerFactory is built, so that waits for the merge
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor cartLinesMergedBeforeSchemaUpdate() {
+        return new EntityManagerFactoryDependsOnPostProcessor(CartItemSchema.class);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        mergeDuplicateLines();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!hasUniqueLineKey()) {
+            throw new IllegalStateException("cart_item has no unique key on (cart_id, product_id); create "
+                    + UNIQUE_LINE_KEY + " before starting, concurrent cart adds depend on it");
+        }
+    }
+
+    // Duplicate lines removed; 0 as well when cart_item doesn't exist yet
+    int mergeDuplicateLines() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Integer duplicated;
+        try {
+            duplicated = jdbc.queryForObject(COUNT_DUPLICATED, Integer.class);
+        } catch (BadSqlGrammarException e) {
+            return 0; // new database; Hibernate creates the table with the key
+        }
+        if (duplicated == null || duplicated == 0) {
+            return 0;
+        }
+        Integer removed = new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(status -> {
+            jdbc.update(SUM_INTO_OLDEST);
+            return jdbc.update(DELETE_NEWER);
+        });
+        logger.warn("Merged {} duplicate cart line(s) for {} (cart, product) pair(s) before adding {}",
+                removed, duplicated, UNIQUE_LINE_KEY);
+        return removed != null ? removed : 0;
+    }
+
+    // A unique index over exactly (cart_id, product_id), whatever the database named it
+    boolean hasUniqueLineKey() {
+        Boolean found = new JdbcTemplate(dataSource).execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "CART_ITEM" : "cart_item";
+            Map<String, Set<String>> columnsByIndex = new HashMap<>();
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table,
+                    true, false)) {
+                while (indexes.next()) {
+                    String index = indexes.getString("INDEX_NAME");
+                    String column = indexes.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        columnsByIndex.computeIfAbsent(index, name -> new HashSet<>()).add(column.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            return columnsByIndex.containsValue(Set.of("cart_id", "product_id"));
+        });
+        return Boolean.TRUE.equals(found);
+    }
+}
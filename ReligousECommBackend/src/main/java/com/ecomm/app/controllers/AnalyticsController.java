@@ -0,0 +1,69 @@
+package com.ecomm.app.controllers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.ecomm.app.dtos.MessageResponse;
+import com.ecomm.app.dtos.RollupBackfillStatus;
+import com.ecomm.app.dtos.SalesPoint;
+import com.ecomm.app.services.SalesRollupBackfill;
+import com.ecomm.app.services.SalesRollupService;
+
+// Sales dashboards; everything here reads the rollup tables only, never orders
+@RestController
+@RequestMapping("/api/analytics")
+@PreAuthorize("hasRole('ADMIN')")
+public class AnalyticsController {
+
+    private final SalesRollupService rollupService;
+    private final SalesRollupBackfill backfill;
+
+    public AnalyticsController(SalesRollupService rollupService, SalesRollupBackfill backfill) {
+        this.rollupService = rollupService;
+        this.backfill = backfill;
+    }
+
+    // Days from..to inclusive; totals by default, one category with category, all of them with byCategory
+    @GetMapping("/sales/daily")
+    public ResponseEntity<List<SalesPoint>> daily(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean byCategory) {
+        return ResponseEntity.ok(rollupService.daily(from, to, category, byCategory));
+    }
+
+    // Hours in [from, to), at most 31 days
+    @GetMapping("/sales/hourly")
+    public ResponseEntity<List<SalesPoint>> hourly(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean byCategory) {
+        return ResponseEntity.ok(rollupService.hourly(from, to, category, byCategory));
+    }
+
+    // Runs in the background; poll GET for progress
+    @PostMapping("/backfill")
+    public ResponseEntity<RollupBackfillStatus> startBackfill() {
+        boolean started = backfill.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(backfill.status());
+    }
+
+    @GetMapping("/backfill")
+    public ResponseEntity<RollupBackfillStatus> backfillStatus() {
+        return ResponseEntity.ok(backfill.status());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<MessageResponse> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+    }
+}
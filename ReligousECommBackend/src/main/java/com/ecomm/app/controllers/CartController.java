@@ -1,28 +1,40 @@
 package com.ecomm.app.controllers;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam; // Not used in provided code, can be removed
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ecomm.app.dtos.CartBatchRequest;
 import com.ecomm.app.dtos.CartRequest;
+import com.ecomm.app.dtos.CartStoreStats;
+import com.ecomm.app.dtos.CartView;
+import com.ecomm.app.dtos.MessageResponse;
 import com.ecomm.app.dtos.UpdateCartRequest;
-import com.ecomm.app.models.Cart;
+import com.ecomm.app.exceptions.ResourceNotFoundException;
 import com.ecomm.app.models.User; // Not directly used in controller, can be removed
-import com.ecomm.app.repo.CartRepository;
 import com.ecomm.app.repo.UserRepository; // Not directly used in controller, can be removed
 import com.ecomm.app.services.CartService;
+import com.ecomm.app.services.UserDetailsImpl;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -31,22 +43,46 @@ public class CartController {
 
     @Autowired private CartService cartService;
     
-    @Autowired private CartRepository cartRepository;
-    
     // @Autowired UserRepository userRepo; // Not used directly in controller, can be removed
 
-    @PostMapping("/add") // This remains for "incrementing" a quantity
-    public ResponseEntity<Cart> addToCart(@RequestBody CartRequest request,
-                                          @AuthenticationPrincipal UserDetails userDetails) {
-        Cart updatedCart = cartService.addToCart(userDetails.getUsername(), request.getProductId(), request.getQuantity());
-        return ResponseEntity.ok(updatedCart);
+    // Every mutation below takes ?delta=true to get back only the lines it touched (plus the new
+    // cart version and total) instead of the whole cart.
+
+    // This remains for "incrementing" a quantity. Send "Prefer: return=minimal" to skip
+    // reading the cart back (204 instead of the full cart).
+    @PostMapping("/add")
+    public ResponseEntity<CartView> addToCart(@RequestBody CartRequest request,
+                                          @RequestHeader(name = "Prefer", required = false) String prefer,
+                                          @RequestParam(defaultValue = "false") boolean delta,
+                                          @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        cartService.incrementItem(userDetails.getId(), request.getProductId(), request.getQuantity());
+        if (prefer != null && prefer.contains("return=minimal")) {
+            return ResponseEntity.noContent().build();
+        }
+        return respond(cartService.getCartView(userDetails.getId()), delta, List.of(request.getProductId()));
     }
     
+    // Many add/set/remove operations in one request and one transaction; returns the final cart once
+    @PostMapping("/batch")
+    public ResponseEntity<CartView> applyBatch(@RequestBody CartBatchRequest request,
+                                               @RequestParam(defaultValue = "false") boolean delta,
+                                               @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        CartView view = cartService.applyBatch(userDetails.getId(), request.getOperations());
+        if (!delta) {
+            return ResponseEntity.ok(view);
+        }
+        List<Long> productIds = new ArrayList<>();
+        for (CartBatchRequest.Operation operation : request.getOperations()) {
+            productIds.add(operation.getProductId());
+        }
+        return respond(view, true, productIds);
+    }
+
     @DeleteMapping
     @PreAuthorize("permitAll()")
     public String deleteAll() {
         try {
-            cartRepository.deleteAll();
+            cartService.deleteAllCarts();
             return "All deleted";
         } catch (Exception e) {
             e.printStackTrace();
@@ -56,39 +92,68 @@ public class CartController {
 
 
     @PutMapping("/set-item-quantity") // *** NEW ENDPOINT for setting total quantity ***
-    public ResponseEntity<Cart> setItemQuantity(@RequestBody CartRequest request,
-                                               @AuthenticationPrincipal UserDetails userDetails) {
-        Cart updatedCart = cartService.setCartItemQuantity(userDetails.getUsername(), request.getProductId(), request.getQuantity());
-        return ResponseEntity.ok(updatedCart);
+    public ResponseEntity<CartView> setItemQuantity(@RequestBody CartRequest request,
+                                               @RequestParam(defaultValue = "false") boolean delta,
+                                               @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        CartView view = cartService.setCartItemQuantity(userDetails.getId(), request.getProductId(), request.getQuantity());
+        return respond(view, delta, List.of(request.getProductId()));
     }
 
     @GetMapping
-    public ResponseEntity<Cart> getCart(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<CartView> getCart(@AuthenticationPrincipal UserDetailsImpl userDetails) {
     	
-        Cart cart = cartService.getCartByUsername(userDetails.getUsername());
-        return ResponseEntity.ok(cart);
+        return ResponseEntity.ok(cartService.getCartView(userDetails.getId()));
     }
 
     @PutMapping("/update") // This should likely use setCartItemQuantity in CartService
-    public ResponseEntity<Cart> updateCartItem(@RequestBody UpdateCartRequest request,
-                                               @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<CartView> updateCartItem(@RequestBody UpdateCartRequest request,
+                                               @RequestParam(defaultValue = "false") boolean delta,
+                                               @AuthenticationPrincipal UserDetailsImpl userDetails) {
         // You might want to change this to call cartService.setCartItemQuantity
         // if this endpoint is meant to set the exact quantity.
         // As per your current CartService, updateQuantity already sets the quantity.
-        Cart updatedCart = cartService.updateQuantity(userDetails.getUsername(), request.getProductId(), request.getQuantity());
-        return ResponseEntity.ok(updatedCart);
+        CartView view = cartService.updateQuantity(userDetails.getId(), request.getProductId(), request.getQuantity());
+        return respond(view, delta, List.of(request.getProductId()));
     }
     
     @DeleteMapping("/remove/{productId}")
-    public ResponseEntity<Cart> removeFromCart(@PathVariable Long productId,
-                                                 @AuthenticationPrincipal UserDetails userDetails) {
-        Cart updatedCart = cartService.removeItem(userDetails.getUsername(), productId);
-        return ResponseEntity.ok(updatedCart);
+    public ResponseEntity<CartView> removeFromCart(@PathVariable Long productId,
+                                                 @RequestParam(defaultValue = "false") boolean delta,
+                                                 @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return respond(cartService.removeItem(userDetails.getId(), productId), delta, List.of(productId));
     }
     
     @DeleteMapping("/clear")
-    public ResponseEntity<Void> clearCart(@AuthenticationPrincipal UserDetails userDetails) {
-        cartService.clearCart(userDetails.getUsername());
+    public ResponseEntity<Void> clearCart(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        cartService.clearCart(userDetails.getId());
         return ResponseEntity.noContent().build();
     }
+
+    private static ResponseEntity<CartView> respond(CartView view, boolean delta, Collection<Long> productIds) {
+        return ResponseEntity.ok(delta ? view.delta(productIds) : view);
+    }
+
+    // Write-behind store counters; 404 when the cart lives in the DB only (cart.store.mode=jpa)
+    @GetMapping("/store/stats")
+    public ResponseEntity<CartStoreStats> getStoreStats() {
+        CartStoreStats stats = cartService.getStoreStats();
+        return stats != null ? ResponseEntity.ok(stats) : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<MessageResponse> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+    }
+
+    // Lost an optimistic race more times than CartService retries; the client can simply resend
+    @ExceptionHandler({OptimisticLockingFailureException.class, DataIntegrityViolationException.class})
+    public ResponseEntity<MessageResponse> handleConflict(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new MessageResponse("Cart was changed by another request, please retry"));
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<MessageResponse> handleNotFound(ResourceNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+    }
 }
@@ -1,55 +1,82 @@
 package com.ecomm.app.controllers;
 
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import com.ecomm.app.dtos.CursorPage;
+import com.ecomm.app.dtos.MessageResponse;
+import com.ecomm.app.dtos.OrderSearchFilter;
+import com.ecomm.app.dtos.OrderTransitionReport;
+import com.ecomm.app.dtos.OrderTransitionRequest;
 import com.ecomm.app.dtos.PlaceOrderRequest;
 import com.ecomm.app.dtos.UserOrderResponse;
+import com.ecomm.app.enums.OrderStatus;
 import com.ecomm.app.enums.PaymentMethod;
+import com.ecomm.app.exceptions.IdempotencyConflictException;
+import com.ecomm.app.exceptions.InsufficientStockException;
+import com.ecomm.app.exceptions.ResourceNotFoundException;
 import com.ecomm.app.models.Order;
+import com.ecomm.app.services.OrderIdempotencyService;
 import com.ecomm.app.services.OrderService;
+import com.ecomm.app.services.OrderStatusService;
+import com.ecomm.app.services.UserDetailsImpl;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIdempotencyService idempotencyService;
+    private final OrderStatusService orderStatusService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIdempotencyService idempotencyService,
+                           OrderStatusService orderStatusService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
+        this.orderStatusService = orderStatusService;
     }
 
+    // Both place endpoints accept an Idempotency-Key header: a retry with the same key (and the same
+    // order) gets the first attempt's order back instead of creating another one
+
     @PreAuthorize("hasRole('USER')") // Only authenticated users can place orders
     @PostMapping("/place-razorpay-order")
-    public ResponseEntity<UserOrderResponse> placeRazorpayOrder(@RequestBody PlaceOrderRequest request, Authentication authentication) {
-        // Ensure the userId in the request matches the authenticated user's ID
-//        if (!request.getUserId().equals(authentication.get)) { // authentication.getName() typically returns userId or username
-//            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-//        }
-    	
-    	System.out.println(authentication.getName()+" "+request.getUserId());
+    public ResponseEntity<UserOrderResponse> placeRazorpayOrder(@RequestBody PlaceOrderRequest request,
+                                                                @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                Authentication authentication) {
+        // Orders are always placed for the logged-in user; a body naming someone else is refused
+        if (!ownRequest(request, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
 
         // The Razorpay payment should have been verified by now on the backend.
         // This endpoint's role is to finalize the order creation in your DB.
         request.setPaymentMethod(PaymentMethod.RAZORPAY);
-        UserOrderResponse response = orderService.placeOrder(request);
+        UserOrderResponse response = idempotencyService.placeOrder(userId(authentication), idempotencyKey, request);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
     @PreAuthorize("hasRole('USER')") // Only authenticated users can place COD orders
     @PostMapping("/place-cod-order")
-    public ResponseEntity<UserOrderResponse> placeCodOrder(@RequestBody PlaceOrderRequest request, Authentication authentication) {
-        // Ensure the userId in the request matches the authenticated user's ID
-       
+    public ResponseEntity<UserOrderResponse> placeCodOrder(@RequestBody PlaceOrderRequest request,
+                                                           @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                                           Authentication authentication) {
+        // Orders are always placed for the logged-in user; a body naming someone else is refused
+        if (!ownRequest(request, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
 
         request.setPaymentMethod(PaymentMethod.COD);
-        UserOrderResponse response = orderService.placeOrder(request);
+        UserOrderResponse response = idempotencyService.placeOrder(userId(authentication), idempotencyKey, request);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
@@ -67,14 +94,78 @@ public class OrderController {
     }
     
     
+    // Kept for the storefront; the path id must be the caller's own
     @PreAuthorize("hasRole('USER')")
     @GetMapping("/getOrders/{userid}")
-    // *** MODIFIED RETURN TYPE: Now returns List<UserOrderResponse> ***
-    public ResponseEntity<List<UserOrderResponse>> getUserOrders(@PathVariable Long userid) {
-        List<UserOrderResponse> orders = orderService.getByUser(userid); // Now gets List<UserOrderResponse>
-        System.out.println(orders);
-        return new ResponseEntity<>(orders, HttpStatus.OK); // Returns List<UserOrderResponse>
+    public ResponseEntity<List<UserOrderResponse>> getUserOrders(@PathVariable Long userid,
+                                                                 @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        if (!userid.equals(userDetails.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(orderService.getByUser(userid));
     }
 
-    // You could add endpoints for /api/orders/my-orders to fetch all orders for the logged-in user
+    // The logged-in user's orders, newest first, keyset-paged: pass nextCursor back as "after"
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping("/my-orders")
+    public ResponseEntity<CursorPage<UserOrderResponse>> getMyOrders(
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String after,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return ResponseEntity.ok(orderService.getHistoryPage(userDetails.getId(), limit, after));
+    }
+
+    // Admin search over all orders; every filter is optional, from is inclusive and to exclusive.
+    // Pages work like my-orders: pass nextCursor back as "after", with the same filters.
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/search")
+    public ResponseEntity<CursorPage<UserOrderResponse>> searchOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) PaymentMethod paymentMethod,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String after) {
+        OrderSearchFilter filter = new OrderSearchFilter(status, paymentMethod, userId, from, to);
+        return ResponseEntity.ok(orderService.searchOrders(filter, limit, after));
+    }
+
+    // Moves many orders to one status; orders whose current status does not allow it are listed in
+    // the report's rejected, the rest are updated
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/admin/status")
+    public ResponseEntity<OrderTransitionReport> transitionStatus(@RequestBody OrderTransitionRequest request) {
+        return ResponseEntity.ok(orderStatusService.transition(request));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<MessageResponse> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+    }
+
+    // Nothing was ordered; the client can drop or reduce the line and retry
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<MessageResponse> handleOutOfStock(InsufficientStockException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<MessageResponse> handleIdempotencyConflict(IdempotencyConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<MessageResponse> handleNotFound(ResourceNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+    }
+
+    private static Long userId(Authentication authentication) {
+        return ((UserDetailsImpl) authentication.getPrincipal()).getId();
+    }
+
+    // No userId in the body, or the caller's own
+    private static boolean ownRequest(PlaceOrderRequest request, Authentication authentication) {
+        return request.getUserId() == null || request.getUserId().equals(userId(authentication));
+    }
 }
@@ -97,13 +97,12 @@ public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderReques
              // IMPORTANT: Your actual business logic goes here!
              // 1. Fetch the order details from your database using razorpay_order_id.
              // 2. Mark the order as 'paid', 'completed', or update its status.
-             // 3. Clear the user's cart in your database.
-             // 4. Create an entry in your orders table.
-             // 5. Send confirmation emails/SMS to the customer.
+             // 3. Create an entry in your orders table (OrderService.placeOrder).
+             // Clearing the cart, confirmation emails/SMS and other follow-up work run from the
+             // outbox: add an OutboxHandler for OrderPlacedEvent.TYPE instead of doing it here.
              // Example:
              // User currentUser = securityService.getCurrentUser(); // Get authenticated user
              // Order savedOrder = orderService.updateOrderStatus(request.getRazorpay_order_id(), "PAID", request.getRazorpay_payment_id());
-             // cartService.clearUserCart(currentUser.getId());
              // >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>
 
              System.out.println("Payment successful and verified for Order ID: " + request.getRazorpay_order_id());
@@ -1,16 +1,29 @@
 package com.ecomm.app.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.ecomm.app.dtos.CacheStats;
+import com.ecomm.app.dtos.ImportReport;
+import com.ecomm.app.dtos.MessageResponse;
+import com.ecomm.app.dtos.ProductCard;
+import com.ecomm.app.dtos.ProductDetail;
+import com.ecomm.app.dtos.ProductFacets;
+import com.ecomm.app.enums.CatalogFormat;
 import com.ecomm.app.models.Product;
-import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.services.ProductExportService;
+import com.ecomm.app.services.ProductImportService;
 import com.ecomm.app.services.ProductService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,28 +35,48 @@ public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    // Clients may store catalog responses but must revalidate; a matching ETag costs a 304 and no DB work
+    private static final CacheControl CATALOG_CACHE_CONTROL = CacheControl.noCache().cachePublic();
+
     @Autowired
     private ProductService productService;
-    
-    
+
+    @Autowired
+    private ProductImportService productImportService;
+
     @Autowired
-    private ProductRepository productRepository;
+    private ProductExportService productExportService;
 
-    // GET all or filtered products
+    // GET all or filtered products.
+    // Passing limit and/or after switches to keyset pagination and returns a CursorPage.
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(required = false) String name,
-            @RequestParam(required = false) String category) {
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestParam(name = "dir", required = false) String direction,
+            ServletWebRequest request) {
         logger.info("Fetching all products. name={}, category={}", name, category);
-        List<Product> products = productService.findProducts(name, category);
+        if (catalogNotModified(request)) {
+            return notModified();
+        }
+        if (isPaged(limit, after)) {
+            return ResponseEntity.ok(productService.findProductPage(name, category, sort, direction, pageSize(limit), after));
+        }
+        List<ProductDetail> products = productService.findProducts(name, category);
         logger.debug("Found {} products", products.size());
         return ResponseEntity.ok(products);
     }
 
     // GET by ID
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ProductDetail> getProductById(@PathVariable Long id, ServletWebRequest request) {
         logger.info("Fetching product by ID: {}", id);
+        if (notModified(request, productService.getProductETag(id), productService.getProductLastModified(id))) {
+            return notModified();
+        }
         return productService.getProductById(id)
                 .map(product -> {
                     logger.debug("Product found: {}", product.getName());
@@ -64,6 +97,39 @@ public class ProductController {
         return new ResponseEntity<>(createdProduct, HttpStatus.CREATED);
     }
 
+    // POST bulk import, streamed: text/csv (with header row) or application/x-ndjson, or pick with ?format=
+    @PostMapping("/import")
+    public ResponseEntity<ImportReport> importProducts(
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body) throws IOException {
+        CatalogFormat importFormat = CatalogFormat.from(format, contentType);
+        if (importFormat == null) {
+            throw new IllegalArgumentException("Send text/csv or application/x-ndjson, or pass ?format=csv|ndjson");
+        }
+        logger.info("Importing products as {}", importFormat);
+        return ResponseEntity.ok(productImportService.importProducts(body, importFormat));
+    }
+
+    // GET full catalog dump, streamed: ?format=ndjson (default) or csv, or via the Accept header
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        CatalogFormat exportFormat = CatalogFormat.from(format, accept);
+        if (exportFormat == null) {
+            exportFormat = CatalogFormat.NDJSON;
+        }
+        CatalogFormat chosen = exportFormat;
+        logger.info("Exporting products as {}", chosen);
+        StreamingResponseBody body = out -> productExportService.export(out, chosen);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, chosen.getContentType() + ";charset=UTF-8")
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products." + chosen.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
     // PUT update product
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
@@ -100,10 +166,21 @@ public class ProductController {
 
     // Get by category
     @GetMapping("/category/{category}")
-    public ResponseEntity<?> getByCategory(@PathVariable String category) {
+    public ResponseEntity<?> getByCategory(@PathVariable String category,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestParam(name = "dir", required = false) String direction,
+            ServletWebRequest request) {
         logger.info("Fetching products by category: {}", category);
+        if (catalogNotModified(request)) {
+            return notModified();
+        }
+        if (isPaged(limit, after)) {
+            return ResponseEntity.ok(productService.getCategoryPage(category, sort, direction, pageSize(limit), after));
+        }
         try {
-            List<Product> products = productService.getByCategory(category);
+            List<ProductDetail> products = productService.getByCategory(category);
             logger.debug("Found {} products in category '{}'", products.size(), category);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
@@ -114,10 +191,22 @@ public class ProductController {
     
     
     @GetMapping("/featured")
-    public ResponseEntity<?> getFeaturedProducts() {
+    public ResponseEntity<?> getFeaturedProducts(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestParam(name = "dir", required = false) String direction,
+            ServletWebRequest request) {
         logger.info("Fetching products by category: {}");
+        // The featured snapshot changes on its own schedule, so it carries its own validator
+        if (notModified(request, productService.getFeaturedETag(), productService.getFeaturedLastModified())) {
+            return notModified();
+        }
+        if (isPaged(limit, after)) {
+            return ResponseEntity.ok(productService.getFeaturedPage(sort, direction, pageSize(limit), after));
+        }
         try {
-            List<Product> products = productRepository.findAll();
+            List<ProductCard> products = productService.getFeaturedProducts();
             logger.debug("Found {} products in category '{}'", products.size());
             return ResponseEntity.ok(products);
         } catch (Exception e) {
@@ -127,32 +216,54 @@ public class ProductController {
     }
     
     
+    // Category list with counts, price range and rating buckets; pass name to facet a search
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacets> getFacets(
+            @RequestParam(name = "name", required = false) String name,
+            ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return notModified();
+        }
+        return ResponseEntity.ok(productService.getFacets(name));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+    
     @GetMapping("/suggestions")
     public ResponseEntity<List<String>> getProductSuggestions(
             @RequestParam(name = "q", required = false) String query,
-            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+            @RequestParam(name = "limit", defaultValue = "10") int limit,
+            ServletWebRequest request) {
 
+        if (catalogNotModified(request)) {
+            return notModified();
+        }
         if (query == null || query.trim().length() < 2) {
             // Return empty list if query is null or too short (less than 2 characters)
             return ResponseEntity.ok(List.of());
         }
 
-        // Use the repository to find products matching the query
-        List<Product> matchingProducts = productRepository.findByNameContainingIgnoreCase(query.trim());
-
-        // Extract just the names and apply limit
-        List<String> suggestions = matchingProducts.stream()
-                .map(Product::getName) // Get only the name of the product
-                .limit(limit)         // Apply the limit
-                .collect(Collectors.toList());
+        // Served from the in-memory suggestion trie, no DB round trip
+        List<String> suggestions = productService.getSuggestions(query.trim(), limit);
 
         return ResponseEntity.ok(suggestions);
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(
-            @RequestParam(name = "q", required = false) String query) {
+    public ResponseEntity<?> searchProducts(
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestParam(name = "dir", required = false) String direction,
+            ServletWebRequest request) {
 
+        if (catalogNotModified(request)) {
+            return notModified();
+        }
         if (query == null || query.trim().isEmpty()) {
             // Return Bad Request if query is empty or not provided
             // Or, return all products, depending on desired behavior for empty search
@@ -160,7 +271,11 @@ public class ProductController {
             return ResponseEntity.ok(List.of());
         }
 
-        List<Product> products = productRepository.findByNameContainingIgnoreCase(query.trim());
+        if (isPaged(limit, after)) {
+            return ResponseEntity.ok(productService.searchProductPage(query.trim(), sort, direction, pageSize(limit), after));
+        }
+
+        List<ProductCard> products = productService.searchProducts(query.trim());
 
         if (products.isEmpty()) {
             // Optionally, return 404 if no products are found, or just an empty 200 list
@@ -170,4 +285,37 @@ public class ProductController {
 
         return ResponseEntity.ok(products);
     }
+
+    // Bad sort names and tampered cursors
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<MessageResponse> handleBadRequest(IllegalArgumentException e) {
+        logger.warn("Rejected product request: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+    }
+
+    // Listings all share the catalog version as their validator
+    private boolean catalogNotModified(ServletWebRequest request) {
+        return notModified(request, productService.getCatalogETag(), productService.getCatalogLastModified());
+    }
+
+    // Sets Cache-Control, ETag and Last-Modified, and reports whether the client's copy is still current.
+    // Called before any service/repository work so a 304 costs only a version read.
+    private static boolean notModified(ServletWebRequest request, String etag, long lastModified) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CATALOG_CACHE_CONTROL.getHeaderValue());
+        }
+        return request.checkNotModified(etag, lastModified);
+    }
+
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+    }
+
+    private static boolean isPaged(Integer limit, String after) {
+        return limit != null || (after != null && !after.isBlank());
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit != null ? limit : ProductService.DEFAULT_PAGE_SIZE;
+    }
 }
@@ -0,0 +1,15 @@
+package com.ecomm.app.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;     // LRU overflow and TTL expiry
+    private long invalidations; // entries dropped by product writes
+    private int size;
+    private long catalogVersion;
+}
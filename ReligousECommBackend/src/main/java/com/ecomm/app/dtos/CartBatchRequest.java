@@ -0,0 +1,24 @@
+package com.ecomm.app.dtos;
+
+import java.util.List;
+
+import com.ecomm.app.enums.CartOperationType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Several cart changes applied in order, in one transaction (cart merge after login, reorder)
+@Data
+public class CartBatchRequest {
+    private List<Operation> operations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+        private CartOperationType op;
+        private Long productId;
+        private int quantity;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecomm.app.dtos;
+
+import lombok.Value;
+
+// One cart row joined with just the product columns the cart shows
+@Value
+public class CartLine {
+    Long cartItemId;
+    Long productId;
+    String name;
+    String category;
+    double price;
+    String imageUrl;
+    int quantity;
+}
@@ -0,0 +1,10 @@
+package com.ecomm.app.dtos;
+
+import lombok.Value;
+
+// Cart id and version, all a cart view needs from the cart row itself
+@Value
+public class CartStamp {
+    Long id;
+    long version;
+}
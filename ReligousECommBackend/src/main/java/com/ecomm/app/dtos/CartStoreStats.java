@@ -0,0 +1,19 @@
+package com.ecomm.app.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CartStoreStats {
+    private int residentCarts;
+    private int dirtyCarts;       // waiting for the next flush
+    private int parkedCarts;      // failed on their own, retried every cart.store.parked-retry-ms
+    private long flushes;
+    private long failedFlushes;
+    private long flushedCarts;
+    private long flushedRows;     // cart_item rows inserted, updated or deleted
+    private long droppedLines;    // lines of deleted products dropped while rewriting a cart
+    private long lastFlushMs;
+    private long lastFlushAt;
+}
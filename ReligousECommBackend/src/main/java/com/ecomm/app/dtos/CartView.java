@@ -0,0 +1,90 @@
+package com.ecomm.app.dtos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cart response built from CartLine rows; keeps the items[].product.* shape the storefront reads and
+ * adds the server-computed line subtotals, cart total and cart version.
+ *
+ * A delta view (delta = true) carries only the lines a mutation touched, plus the product ids whose
+ * lines are gone; total, itemCount and version still describe the whole cart.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CartView {
+    private Long id;
+    private long version;
+    private double total;
+    private int itemCount;
+    private List<Item> items;
+    private Boolean delta;        // null for a full view
+    private List<Long> removed;   // delta only
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long id;
+        private int quantity;
+        private double subtotal;
+        private ItemProduct product;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemProduct {
+        private Long id;
+        private String name;
+        private String category;
+        private double price;
+        private String imageUrl;
+    }
+
+    public static CartView empty() {
+        return new CartView(null, 0, 0, 0, List.of(), null, null);
+    }
+
+    public static CartView of(Long cartId, long version, List<CartLine> lines) {
+        List<Item> items = new ArrayList<>(lines.size());
+        double total = 0;
+        int count = 0;
+        for (CartLine line : lines) {
+            double subtotal = cents(line.getPrice() * line.getQuantity());
+            items.add(new Item(line.getCartItemId(), line.getQuantity(), subtotal,
+                    new ItemProduct(line.getProductId(), line.getName(), line.getCategory(),
+                            line.getPrice(), line.getImageUrl())));
+            total += subtotal;
+            count += line.getQuantity();
+        }
+        return new CartView(cartId, version, cents(total), count, items, null, null);
+    }
+
+    // Same cart, reduced to the lines of the given products
+    public CartView delta(Collection<Long> productIds) {
+        Set<Long> wanted = new LinkedHashSet<>(productIds);
+        List<Item> changed = new ArrayList<>();
+        for (Item item : items) {
+            if (wanted.remove(item.getProduct().getId())) {
+                changed.add(item);
+            }
+        }
+        return new CartView(id, version, total, itemCount, changed, true, new ArrayList<>(wanted));
+    }
+
+    private static double cents(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ecomm.app.dtos;
+
+import lombok.Value;
+
+@Value
+public class CategoryFacet {
+    String category;
+    long count;
+    double minPrice;
+    double maxPrice;
+    long[] ratingBuckets; // [i] = products rated in [i, i + 1), the last bucket also holds 5.0
+}
@@ -0,0 +1,16 @@
+package com.ecomm.app.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor; // Pass back as "after" to get the next page, null on the last page
+    private boolean hasNext;
+}
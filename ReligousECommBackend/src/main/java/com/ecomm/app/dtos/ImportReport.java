@@ -0,0 +1,28 @@
+package com.ecomm.app.dtos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ImportReport {
+    private long rows;        // data rows read, excluding the CSV header and blank lines
+    private long imported;
+    private long failed;
+    private int batches;
+    private long elapsedMs;
+    private boolean errorsTruncated; // more rows failed than are listed in errors
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;     // 1-based record number in the uploaded file
+        private String message;
+    }
+}
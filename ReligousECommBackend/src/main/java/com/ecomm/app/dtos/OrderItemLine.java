@@ -0,0 +1,20 @@
+package com.ecomm.app.dtos;
+
+import lombok.Value;
+
+// One order_items row tagged with its order id, so the items of a whole page come back in one query
+@Value
+public class OrderItemLine {
+    String orderId;
+    String id;
+    String productId;
+    String name;
+    int quantity;
+    double price;
+    String imageUrl;
+    String category;
+
+    public UserOrderResponse.OrderItemResponse toResponse() {
+        return new UserOrderResponse.OrderItemResponse(id, productId, name, quantity, price, imageUrl, category);
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecomm.app.dtos;
+
+import java.util.List;
+
+import com.ecomm.app.enums.PaymentMethod;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outbox payload written with every placed order
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPlacedEvent {
+    public static final String TYPE = "ORDER_PLACED";
+
+    private String orderId;
+    private Long userId;
+    private PaymentMethod paymentMethod;
+    private double totalAmount;
+    private List<Line> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private int quantity;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecomm.app.dtos;
+
+import java.time.LocalDateTime;
+
+import com.ecomm.app.enums.OrderStatus;
+
+import lombok.Value;
+
+// The order columns a sales rollup is computed from
+@Value
+public class OrderRollupSource {
+    String id;
+    OrderStatus status;
+    LocalDateTime orderDate;
+}
@@ -0,0 +1,22 @@
+package com.ecomm.app.dtos;
+
+import java.time.LocalDateTime;
+
+import com.ecomm.app.enums.OrderStatus;
+import com.ecomm.app.enums.PaymentMethod;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Admin order search; every field is optional, and set fields are ANDed
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchFilter {
+    private OrderStatus status;
+    private PaymentMethod paymentMethod;
+    private Long userId;
+    private LocalDateTime from; // inclusive
+    private LocalDateTime to;   // exclusive
+}
@@ -0,0 +1,20 @@
+package com.ecomm.app.dtos;
+
+import java.util.List;
+
+import com.ecomm.app.enums.OrderStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outbox payload for one chunk of a bulk status transition: these orders are now in status
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+    public static final String TYPE = "ORDER_STATUS_CHANGED";
+
+    private List<String> orderIds;
+    private OrderStatus status;
+}
@@ -0,0 +1,13 @@
+package com.ecomm.app.dtos;
+
+import com.ecomm.app.enums.OrderStatus;
+
+import lombok.Value;
+
+// Order id, current status and whether a payment was taken, all a bulk transition needs to know about an order
+@Value
+public class OrderStatusStamp {
+    String id;
+    OrderStatus status;
+    boolean paid;
+}
@@ -0,0 +1,28 @@
+package com.ecomm.app.dtos;
+
+import java.util.List;
+
+import com.ecomm.app.enums.OrderStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTransitionReport {
+    private OrderStatus target;
+    private int requested;   // distinct ids in the request
+    private int transitioned;
+    private List<Rejected> rejected;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rejected {
+        private String orderId;
+        private OrderStatus status; // status the order was left in, null if there is no such order
+        private String reason;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecomm.app.dtos;
+
+import java.util.List;
+
+import com.ecomm.app.enums.OrderStatus;
+
+import lombok.Data;
+
+// Moves every listed order to target; with from set, only orders currently in that status are moved
+@Data
+public class OrderTransitionRequest {
+    private List<String> orderIds;
+    private OrderStatus target;
+    private OrderStatus from;
+}
@@ -0,0 +1,16 @@
+package com.ecomm.app.dtos;
+
+import lombok.Value;
+
+// Read-only product row for list views: everything a product tile needs, no description
+@Value
+public class ProductCard {
+    Long id;
+    String name;
+    String category;
+    double price;
+    double originalPrice;
+    int stock;
+    String imageUrl;
+    double rating;
+}
@@ -0,0 +1,29 @@
+package com.ecomm.app.dtos;
+
+import com.ecomm.app.models.Product;
+
+import lombok.Value;
+
+// Read-only product for the detail page (and the unpaged lists the storefront filters client-side)
+@Value
+public class ProductDetail {
+    Long id;
+    String name;
+    String category;
+    double price;
+    double originalPrice;
+    int stock;
+    String imageUrl;
+    String description;
+    double rating;
+
+    public static ProductDetail from(Product product) {
+        return new ProductDetail(product.getId(), product.getName(), product.getCategory(),
+                product.getPrice(), product.getOriginalPrice(), product.getStock(),
+                product.getImageUrl(), product.getDescription(), product.getRating());
+    }
+
+    public ProductCard toCard() {
+        return new ProductCard(id, name, category, price, originalPrice, stock, imageUrl, rating);
+    }
+}
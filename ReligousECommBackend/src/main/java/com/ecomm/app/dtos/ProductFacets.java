@@ -0,0 +1,13 @@
+package com.ecomm.app.dtos;
+
+import java.util.List;
+
+import lombok.Value;
+
+@Value
+public class ProductFacets {
+    long total;
+    double minPrice;
+    double maxPrice;
+    List<CategoryFacet> categories; // ordered by category name
+}
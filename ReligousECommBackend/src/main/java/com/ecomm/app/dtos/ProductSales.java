@@ -0,0 +1,10 @@
+package com.ecomm.app.dtos;
+
+import lombok.Value;
+
+// Units sold of one product over some period (OrderItem.productId is stored as a string)
+@Value
+public class ProductSales {
+    String productId;
+    long quantity;
+}
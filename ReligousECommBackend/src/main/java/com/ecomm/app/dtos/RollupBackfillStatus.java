@@ -0,0 +1,17 @@
+package com.ecomm.app.dtos;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RollupBackfillStatus {
+    private boolean running;
+    private long ordersProcessed;
+    private String lastOrderId;  // keyset position; a new run starts over from the beginning
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;        // why the last run stopped early, null if it did not
+}
@@ -0,0 +1,25 @@
+package com.ecomm.app.dtos;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One rollup bucket as the analytics endpoints return it
+@Data
+@NoArgsConstructor
+public class SalesPoint {
+    private LocalDateTime bucket;
+    private String category;
+    private long orders;
+    private long units;
+    private double revenue;
+
+    public SalesPoint(LocalDateTime bucket, String category, long orders, long units, long revenueCents) {
+        this.bucket = bucket;
+        this.category = category;
+        this.orders = orders;
+        this.units = units;
+        this.revenue = revenueCents / 100.0;
+    }
+}
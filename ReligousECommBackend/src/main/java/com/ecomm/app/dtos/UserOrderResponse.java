@@ -14,6 +14,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -32,7 +33,14 @@ public class UserOrderResponse {
     private OrderStatus status;
     private LocalDateTime orderDate;
     private String razorpayPaymentId; // Only if Razorpay
-    
+
+    // Order columns only, for JPQL constructor projections; items are filled in from a second query
+    public UserOrderResponse(String id, Long userId, double totalAmount, Address shippingAddress,
+                             PaymentMethod paymentMethod, OrderStatus status, LocalDateTime orderDate,
+                             String razorpayPaymentId) {
+        this(id, userId, new ArrayList<>(), totalAmount, shippingAddress, paymentMethod, status, orderDate,
+                razorpayPaymentId);
+    }
     
     @Data
     @NoArgsConstructor
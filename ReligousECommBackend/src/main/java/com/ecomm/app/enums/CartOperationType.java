@@ -0,0 +1,24 @@
+package com.ecomm.app.enums;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+// One step of a batched cart update
+public enum CartOperationType {
+    ADD,    // increase the quantity, adding the line if needed
+    SET,    // set the quantity exactly; 0 or less removes the line
+    REMOVE; // drop the line if present
+
+    @JsonCreator
+    public static CartOperationType from(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return CartOperationType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown cart operation '" + value + "', expected add, set or remove");
+        }
+    }
+}
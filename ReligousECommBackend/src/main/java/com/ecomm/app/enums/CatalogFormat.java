@@ -0,0 +1,40 @@
+package com.ecomm.app.enums;
+
+import java.util.Locale;
+
+// Wire formats for bulk catalog import/export
+public enum CatalogFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    CatalogFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    // Explicit ?format= wins, otherwise the media type decides (text/csv, application/x-ndjson or application/ndjson)
+    public static CatalogFormat from(String format, String mediaType) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return CatalogFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown format '" + format + "', expected csv or ndjson");
+            }
+        }
+        if (mediaType != null) {
+            String type = mediaType.toLowerCase(Locale.ROOT);
+            if (type.contains("csv")) {
+                return CSV;
+            }
+            if (type.contains("ndjson")) {
+                return NDJSON;
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,11 @@
 package com.ecomm.app.enums;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING_PAYMENT,     // For Razorpay orders initiated but not yet paid (or failed)
     PAID,                // Razorpay payment successful and confirmed
@@ -8,5 +14,56 @@ public enum OrderStatus {
     SHIPPED,             // Order has left the warehouse/seller
     DELIVERED,           // Order has been successfully delivered to the customer
     CANCELLED,           // Order cancelled by customer or admin
-    REFUNDED             // Order was paid for, but payment was refunded
-}
\ No newline at end of file
+    REFUNDED;            // Order was paid for, but payment was refunded
+
+    // Legal transitions: state -> states it may move to, and the reverse. REFUNDED is final.
+    private static final Map<OrderStatus, Set<OrderStatus>> NEXT = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, Set<OrderStatus>> PREVIOUS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        for (OrderStatus status : values()) {
+            NEXT.put(status, EnumSet.noneOf(OrderStatus.class));
+            PREVIOUS.put(status, EnumSet.noneOf(OrderStatus.class));
+        }
+        allow(PENDING_PAYMENT, PAID, CANCELLED);
+        allow(PAID, PROCESSING, CANCELLED, REFUNDED);
+        allow(PENDING_CONFIRMATION, PROCESSING, CANCELLED);
+        allow(PROCESSING, SHIPPED, CANCELLED);
+        allow(SHIPPED, DELIVERED);
+        allow(DELIVERED, REFUNDED);
+        allow(CANCELLED, REFUNDED); // only if it was paid before it was cancelled; OrderStatusService checks
+        NEXT.replaceAll((status, next) -> Collections.unmodifiableSet(next));
+        PREVIOUS.replaceAll((status, previous) -> Collections.unmodifiableSet(previous));
+    }
+
+    private static void allow(OrderStatus from, OrderStatus... to) {
+        for (OrderStatus target : to) {
+            NEXT.get(from).add(target);
+            PREVIOUS.get(target).add(from);
+        }
+    }
+
+    // Counts towards sales figures: paid, or a COD order that was not cancelled
+    public boolean isSale() {
+        return this != PENDING_PAYMENT && this != CANCELLED && this != REFUNDED;
+    }
+
+    // Statuses from which moving here puts the order's units back in stock: cancelled before shipment,
+    // or refunded while still PAID. A refund after delivery leaves stock alone (the customer has the
+    // goods), and CANCELLED -> REFUNDED was already restocked by the cancellation.
+    public Set<OrderStatus> restocksFrom() {
+        if (this == CANCELLED) {
+            return legalSources();
+        }
+        return this == REFUNDED ? Collections.singleton(PAID) : Collections.emptySet();
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return NEXT.get(this).contains(target);
+    }
+
+    // Every status an order may be in to move to this one
+    public Set<OrderStatus> legalSources() {
+        return PREVIOUS.get(this);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ecomm.app.enums;
+
+public enum OutboxStatus {
+    PENDING, // Waiting for (another) delivery attempt
+    DONE,    // Handler succeeded
+    FAILED   // Gave up after outbox.max-attempts; needs a look
+}
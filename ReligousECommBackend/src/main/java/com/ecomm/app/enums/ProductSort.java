@@ -0,0 +1,55 @@
+package com.ecomm.app.enums;
+
+import java.util.Comparator;
+
+import com.ecomm.app.dtos.ProductCard;
+
+public enum ProductSort {
+    ID("id"),
+    PRICE("price"),
+    RATING("rating"),
+    NAME("name");
+
+    private final String property;
+
+    ProductSort(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    // Value of the sort key for a product, used to build the next-page cursor
+    public Object keyOf(ProductCard product) {
+        switch (this) {
+            case PRICE: return product.getPrice();
+            case RATING: return product.getRating();
+            case NAME: return product.getName();
+            default: return product.getId();
+        }
+    }
+
+    // Ascending (sortKey, id) order, the same order the keyset queries use
+    public Comparator<ProductCard> comparator() {
+        Comparator<ProductCard> byId = Comparator.comparing(ProductCard::getId);
+        switch (this) {
+            case PRICE: return Comparator.comparingDouble(ProductCard::getPrice).thenComparing(byId);
+            case RATING: return Comparator.comparingDouble(ProductCard::getRating).thenComparing(byId);
+            case NAME: return Comparator.comparing(ProductCard::getName, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(byId);
+            default: return byId;
+        }
+    }
+
+    public static ProductSort from(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        try {
+            return ProductSort.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported sort: " + value + ". Use price, rating or name");
+        }
+    }
+}
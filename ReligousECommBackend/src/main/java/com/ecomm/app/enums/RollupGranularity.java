@@ -0,0 +1,14 @@
+package com.ecomm.app.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Bucket size of a sales rollup row
+public enum RollupGranularity {
+    HOUR,
+    DAY;
+
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return this == HOUR ? time.truncatedTo(ChronoUnit.HOURS) : time.truncatedTo(ChronoUnit.DAYS);
+    }
+}
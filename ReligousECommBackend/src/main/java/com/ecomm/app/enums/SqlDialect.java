@@ -0,0 +1,26 @@
+package com.ecomm.app.enums;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Which native upsert syntax the database takes, from the Dialect Hibernate actually runs with
+public enum SqlDialect {
+    POSTGRES,
+    MYSQL,  // MySQL and MariaDB (MariaDBDialect extends MySQLDialect)
+    OTHER;  // no native form; callers use the entity path
+
+    public static SqlDialect of(EntityManagerFactory entityManagerFactory) {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (dialect instanceof PostgreSQLDialect) {
+            return POSTGRES;
+        }
+        if (dialect instanceof MySQLDialect) {
+            return MYSQL;
+        }
+        return OTHER;
+    }
+}
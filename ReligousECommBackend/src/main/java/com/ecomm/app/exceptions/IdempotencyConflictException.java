@@ -0,0 +1,9 @@
+package com.ecomm.app.exceptions;
+
+// The Idempotency-Key was already used for a different request, or its first request is still running
+public class IdempotencyConflictException extends RuntimeException {
+
+	public IdempotencyConflictException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,16 @@
+package com.ecomm.app.exceptions;
+
+// A product of the order doesn't have enough stock left; the whole order is rolled back
+public class InsufficientStockException extends RuntimeException {
+
+	private final Long productId;
+
+	public InsufficientStockException(Long productId) {
+		super("Not enough stock for product " + productId);
+		this.productId = productId;
+	}
+
+	public Long getProductId() {
+		return productId;
+	}
+}
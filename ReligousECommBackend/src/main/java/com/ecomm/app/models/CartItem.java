@@ -1,16 +1,28 @@
 package com.ecomm.app.models;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Entity
 @Data
+// One line per product per cart, even when two requests add the same product at once (CartItemSchema
+// merges lines from before the key and refuses to start without it)
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_cart_product", columnNames = {"cart_id", "product_id"}))
 public class CartItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,11 +30,22 @@ public class CartItem {
 
     @ManyToOne
     @JsonIgnore
+    @EqualsAndHashCode.Exclude // back-reference, would recurse through Cart.items
+    @ToString.Exclude
     private Cart cart;
 
-    @ManyToOne
+    // Lazy: cart logic only needs the product id, which the proxy carries without a select
+    @ManyToOne(fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude // hashing the proxy would load the product during flush
+    @ToString.Exclude
     private Product product;
 
     private int quantity;
 
+    // Optimistic lock, so concurrent quantity updates can't overwrite each other
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
 }
@@ -15,7 +15,14 @@ import com.ecomm.app.models.OrderItem;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(name = "orders") // Mapped to a database table named "orders"
+@Table(name = "orders", // Mapped to a database table named "orders"
+        indexes = {
+                @Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id"), // order history keyset
+                // Admin search: one (filter, order_date, id) index per equality filter, plus the date-only one
+                @Index(name = "idx_orders_date", columnList = "order_date, id"),
+                @Index(name = "idx_orders_status_date", columnList = "status, order_date, id"),
+                @Index(name = "idx_orders_payment_date", columnList = "payment_method, order_date, id")
+        })
 @Data // From Lombok, generates getters, setters, equals, hashCode, toString
 @NoArgsConstructor // From Lombok, generates no-arg constructor
 @AllArgsConstructor // From Lombok, generates constructor with all fields
@@ -59,6 +66,12 @@ public class Order {
     private String razorpayPaymentId;
     private String razorpaySignature;
 
+    // Set once the ordered items have been taken out of the buyer's cart, so a redelivery does not repeat it
+    private LocalDateTime cartCleanedAt;
+
+    // Set once a cancellation or refund has put the ordered units back in stock
+    private LocalDateTime stockReleasedAt;
+
     // Helper methods for managing order items
     public void addOrderItem(OrderItem item) {
         items.add(item);
@@ -0,0 +1,70 @@
+package com.ecomm.app.models;
+
+import java.time.LocalDateTime;
+
+import com.ecomm.app.enums.OutboxStatus;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One delivery of an event to one handler, inserted in the transaction that produced the event
+@Entity
+@Table(name = "outbox_events",
+        indexes = {
+                @Index(name = "idx_outbox_due", columnList = "status, available_at, id"), // dispatcher poll
+                @Index(name = "idx_outbox_claim", columnList = "claim_token")
+        })
+@Data
+@NoArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String eventType;
+
+    // OutboxHandler.name() of the handler this row is for
+    @Column(nullable = false, length = 64)
+    private String handler;
+
+    // Id of the entity the event is about (the order id for ORDER_PLACED)
+    @Column(name = "aggregate_id", length = 64)
+    private String aggregateId;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    // Due time of the next attempt; while claimed, the end of the dispatcher's lease
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,54 @@
+package com.ecomm.app.models;
+
+import java.time.LocalDateTime;
+
+import com.ecomm.app.enums.RollupGranularity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Sales of one category (or of all, category = ALL) in one hour or day; only ever changed by deltas
+@Entity
+@Table(name = "sales_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_bucket",
+                columnNames = {"granularity", "bucket_start", "category"}),
+        indexes = @Index(name = "idx_sales_rollup_category", columnList = "granularity, category, bucket_start"))
+@Data
+@NoArgsConstructor
+public class SalesRollup {
+    public static final String ALL = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false, length = 100)
+    private String category;
+
+    // Orders with at least one line in the category
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(name = "revenue_cents", nullable = false)
+    private long revenueCents;
+}
@@ -0,0 +1,30 @@
+package com.ecomm.app.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Whether an order's sales are currently in the rollups, so applying an order twice changes nothing
+@Entity
+@Table(name = "sales_rollup_orders")
+@Data
+@NoArgsConstructor
+public class SalesRollupOrder {
+    @Id
+    @Column(name = "order_id", length = 36)
+    private String orderId;
+
+    private boolean counted;
+
+    // Null until persisted, which is also how Spring Data tells a new marker from an existing one
+    @Version
+    private Integer version;
+
+    public SalesRollupOrder(String orderId) {
+        this.orderId = orderId;
+    }
+}
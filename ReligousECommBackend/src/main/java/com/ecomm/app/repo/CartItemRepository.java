@@ -1,7 +1,51 @@
 package com.ecomm.app.repo;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.ecomm.app.dtos.CartLine;
 import com.ecomm.app.models.CartItem;
 
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {}
\ No newline at end of file
+public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    // Cart lines with only the product columns the cart shows, in one query
+    @Query("select new com.ecomm.app.dtos.CartLine(ci.id, p.id, p.name, p.category, p.price, p.imageUrl, ci.quantity) "
+            + "from CartItem ci join ci.product p where ci.cart.id = :cartId order by ci.id")
+    List<CartLine> findLinesByCartId(@Param("cartId") Long cartId);
+
+    // Add quantity to the user's line for a product in one statement, creating the line if needed.
+    // Relies on the unique (cart_id, product_id) key; bumps version so entity updates still see the change.
+    // Returns 0 when the user has no cart yet.
+    @Modifying
+    @Query(value = "insert into cart_item (cart_id, product_id, quantity, version) "
+            + "select c.id, :productId, :quantity, 0 from cart c where c.user_id = :userId "
+            + "on conflict (cart_id, product_id) do update "
+            + "set quantity = cart_item.quantity + excluded.quantity, version = cart_item.version + 1",
+            nativeQuery = true)
+    int upsertQuantityPostgres(@Param("userId") Long userId, @Param("productId") Long productId,
+                               @Param("quantity") int quantity);
+
+    @Modifying
+    @Query(value = "insert into cart_item (cart_id, product_id, quantity, version) "
+            + "select c.id, :productId, :quantity, 0 from cart c where c.user_id = :userId "
+            + "on duplicate key update "
+            + "quantity = cart_item.quantity + values(quantity), version = cart_item.version + 1",
+            nativeQuery = true)
+    int upsertQuantityMySql(@Param("userId") Long userId, @Param("productId") Long productId,
+                            @Param("quantity") int quantity);
+
+    // Set-based clear: one statement whatever the number of lines
+    @Modifying(clearAutomatically = true)
+    @Query("delete from CartItem ci where ci.cart.id in (select c.id from Cart c where c.user.id = :userId)")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from CartItem ci where ci.cart.id in "
+            + "(select c.id from Cart c where c.id in :ids and c.updatedAt < :cutoff)")
+    int deleteIdleLines(@Param("ids") List<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,7 +1,38 @@
 package com.ecomm.app.repo;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.ecomm.app.dtos.CartStamp;
 import com.ecomm.app.models.Cart;
 
-public interface CartRepository extends JpaRepository<Cart, Long> {}
\ No newline at end of file
+public interface CartRepository extends JpaRepository<Cart, Long> {
+
+    // Cart and its items in one round trip; item.getProduct() stays an uninitialized proxy holding the id
+    @Query("select distinct c from Cart c left join fetch c.items where c.user.id = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+
+    @Query("select new com.ecomm.app.dtos.CartStamp(c.id, c.version) from Cart c where c.user.id = :userId")
+    Optional<CartStamp> findStampByUserId(@Param("userId") Long userId);
+
+    // Bumps version and updatedAt for line writes that don't go through the cart entity
+    @Modifying
+    @Query("update Cart c set c.version = c.version + 1, c.updatedAt = :now where c.user.id = :userId")
+    int touchByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    // Keyset over ids, so carts the reaper skips are not picked again by the next chunk
+    @Query("select c.id from Cart c where c.updatedAt < :cutoff and c.id > :after order by c.id")
+    List<Long> findIdsIdleSince(@Param("cutoff") LocalDateTime cutoff, @Param("after") long after, Limit limit);
+
+    // Re-checks the cutoff, so a cart touched since it was picked is kept
+    @Modifying
+    @Query("delete from Cart c where c.id in :ids and c.updatedAt < :cutoff")
+    int deleteIdle(@Param("ids") List<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,8 +1,16 @@
 package com.ecomm.app.repo;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
  // <-- This is the package declaration
 
@@ -10,10 +18,18 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import com.ecomm.app.dtos.OrderItemLine;
+import com.ecomm.app.dtos.OrderRollupSource;
+import com.ecomm.app.dtos.OrderStatusStamp;
+import com.ecomm.app.dtos.ProductSales;
+import com.ecomm.app.dtos.UserOrderResponse;
+import com.ecomm.app.enums.OrderStatus;
 import com.ecomm.app.models.Order;
 
+import jakarta.persistence.LockModeType;
+
 @Repository // Marks this interface as a Spring repository component
-public interface OrderRepository extends JpaRepository<Order, String> {
+public interface OrderRepository extends JpaRepository<Order, String>, OrderSearchRepository {
     // JpaRepository<T, ID> where T is the entity type (Order)
     // and ID is the type of its primary key (String, as Order.id is String UUID)
 
@@ -26,7 +42,82 @@ public interface OrderRepository extends JpaRepository<Order, String> {
 
     // You can add custom query methods here if needed, for example:
      List<Order> findByUserId(Long userId);
-    // List<Order> findByStatus(OrderStatus status);
-    // @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate")
-    // List<Order> findOrdersBetweenDates(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    // Order history pages, newest first, as projections: no entity, no lazy user or items to walk.
+    // razorpayPaymentId carries the Razorpay order id, as the entity mapping always did.
+    String HISTORY_SELECT = "select new com.ecomm.app.dtos.UserOrderResponse(o.id, o.user.id, o.totalAmount, "
+            + "o.shippingAddress, o.paymentMethod, o.status, o.orderDate, o.razorpayOrderId) from Order o ";
+
+    @Query(HISTORY_SELECT + "where o.user.id = :userId order by o.orderDate desc, o.id desc")
+    List<UserOrderResponse> findHistory(@Param("userId") Long userId, Limit limit);
+
+    @Query(HISTORY_SELECT + "where o.id = :id")
+    Optional<UserOrderResponse> findResponseById(@Param("id") String id);
+
+    // Next page after the (orderDate, id) keyset cursor
+    @Query(HISTORY_SELECT + "where o.user.id = :userId "
+            + "and (o.orderDate < :orderDate or (o.orderDate = :orderDate and o.id < :id)) "
+            + "order by o.orderDate desc, o.id desc")
+    List<UserOrderResponse> findHistoryAfter(@Param("userId") Long userId, @Param("orderDate") LocalDateTime orderDate,
+                                             @Param("id") String id, Limit limit);
+
+    // Items of many orders in one query
+    @Query("select new com.ecomm.app.dtos.OrderItemLine(oi.order.id, oi.id, oi.productId, oi.name, oi.quantity, "
+            + "oi.price, oi.imageUrl, oi.category) from OrderItem oi where oi.order.id in :orderIds")
+    List<OrderItemLine> findItemLines(@Param("orderIds") Collection<String> orderIds);
+
+    // Best sellers since the given time, aggregated in the DB so only `limit` rows come back
+    @Query("select new com.ecomm.app.dtos.ProductSales(oi.productId, sum(oi.quantity)) "
+            + "from OrderItem oi join oi.order o "
+            + "where o.orderDate >= :since and o.status not in :excluded "
+            + "group by oi.productId order by sum(oi.quantity) desc")
+    List<ProductSales> findTopSellingSince(@Param("since") LocalDateTime since,
+                                           @Param("excluded") Collection<OrderStatus> excluded,
+                                           Limit limit);
+    @Query("select new com.ecomm.app.dtos.OrderStatusStamp(o.id, o.status, "
+            + "case when o.razorpayPaymentId is not null then true else false end) from Order o where o.id in :ids")
+    List<OrderStatusStamp> findStatuses(@Param("ids") Collection<String> ids);
+
+    // 1 for the first caller only; the cart cleanup commits with it
+    @Modifying
+    @Query("update Order o set o.cartCleanedAt = :now where o.id = :id and o.cartCleanedAt is null")
+    int markCartCleaned(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    // Set-based status change; the status guard makes it a no-op for orders that moved on meanwhile
+    @Modifying
+    @Query("update Order o set o.status = :target where o.id in :ids and o.status in :sources")
+    int transitionStatus(@Param("ids") Collection<String> ids, @Param("sources") Collection<OrderStatus> sources,
+                         @Param("target") OrderStatus target);
+
+    // As transitionStatus, but a cancelled order only moves if a payment was taken for it
+    @Modifying
+    @Query("update Order o set o.status = com.ecomm.app.enums.OrderStatus.REFUNDED where o.id in :ids"
+            + " and o.status in :sources"
+            + " and (o.status <> com.ecomm.app.enums.OrderStatus.CANCELLED or o.razorpayPaymentId is not null)")
+    int refund(@Param("ids") Collection<String> ids, @Param("sources") Collection<OrderStatus> sources);
+
+    // Orders in one of these statuses still holding their stock, locked so their status can't change
+    // until this transaction ends; a locking read also sees releases committed since its first read
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o.id from Order o where o.id in :ids and o.status in :statuses and o.stockReleasedAt is null"
+            + " order by o.id")
+    List<String> lockStockHolders(@Param("ids") Collection<String> ids,
+                                  @Param("statuses") Collection<OrderStatus> statuses);
+
+    @Modifying
+    @Query("update Order o set o.stockReleasedAt = :now where o.id in :ids")
+    int markStockReleased(@Param("ids") Collection<String> ids, @Param("now") LocalDateTime now);
+
+    // Locks the orders (in id order, so concurrent callers cannot deadlock) while their rollup share is
+    // applied; status changes wait for it, and it sees the status they committed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.ecomm.app.dtos.OrderRollupSource(o.id, o.status, o.orderDate) from Order o "
+            + "where o.id in :ids order by o.id")
+    List<OrderRollupSource> lockRollupSources(@Param("ids") Collection<String> ids);
+
+    // Primary-key keyset walk over every order, for backfills
+    @Query("select o.id from Order o where o.id > :after order by o.id")
+    List<String> findIdsAfter(@Param("after") String after, Limit limit);
+
+    // Status and date-range lookups for the admin live in OrderSearchRepository.search
 }
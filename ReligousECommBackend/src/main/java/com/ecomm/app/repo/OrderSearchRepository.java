@@ -0,0 +1,17 @@
+package com.ecomm.app.repo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.ecomm.app.dtos.OrderSearchFilter;
+import com.ecomm.app.dtos.UserOrderResponse;
+
+// Custom fragment of OrderRepository for queries whose predicates depend on the request
+public interface OrderSearchRepository {
+
+    /**
+     * Orders matching the filter, newest first, as projections without items. afterDate/afterId is the
+     * (orderDate, id) keyset of the last row of the previous page, both null for the first page.
+     */
+    List<UserOrderResponse> search(OrderSearchFilter filter, LocalDateTime afterDate, String afterId, int limit);
+}
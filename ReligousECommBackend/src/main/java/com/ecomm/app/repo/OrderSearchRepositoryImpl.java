@@ -0,0 +1,70 @@
+package com.ecomm.app.repo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.ecomm.app.dtos.OrderSearchFilter;
+import com.ecomm.app.dtos.UserOrderResponse;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Builds the search JPQL from the filters that are actually set, instead of one query full of
+ * "(:x is null or o.x = :x)" guards that no planner can turn into an index range. Equality filters
+ * come first and the range on orderDate last, matching the (filter, order_date, id) indexes on Order,
+ * so each page is a range scan in index order that stops after limit rows, with no sort.
+ */
+public class OrderSearchRepositoryImpl implements OrderSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserOrderResponse> search(OrderSearchFilter filter, LocalDateTime afterDate, String afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(OrderRepository.HISTORY_SELECT).append("where 1 = 1");
+        if (filter.getUserId() != null) {
+            jpql.append(" and o.user.id = :userId");
+        }
+        if (filter.getStatus() != null) {
+            jpql.append(" and o.status = :status");
+        }
+        if (filter.getPaymentMethod() != null) {
+            jpql.append(" and o.paymentMethod = :paymentMethod");
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" and o.orderDate >= :from");
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" and o.orderDate < :to");
+        }
+        if (afterDate != null) {
+            // The plain <= bound gives the planner a range to seek to; the OR breaks ties on id
+            jpql.append(" and o.orderDate <= :afterDate and (o.orderDate < :afterDate or o.id < :afterId)");
+        }
+        jpql.append(" order by o.orderDate desc, o.id desc");
+
+        TypedQuery<UserOrderResponse> query = entityManager.createQuery(jpql.toString(), UserOrderResponse.class);
+        if (filter.getUserId() != null) {
+            query.setParameter("userId", filter.getUserId());
+        }
+        if (filter.getStatus() != null) {
+            query.setParameter("status", filter.getStatus());
+        }
+        if (filter.getPaymentMethod() != null) {
+            query.setParameter("paymentMethod", filter.getPaymentMethod());
+        }
+        if (filter.getFrom() != null) {
+            query.setParameter("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            query.setParameter("to", filter.getTo());
+        }
+        if (afterDate != null) {
+            query.setParameter("afterDate", afterDate);
+            query.setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecomm.app.repo;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ecomm.app.enums.OutboxStatus;
+import com.ecomm.app.models.OutboxEvent;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("select e.id from OutboxEvent e where e.status = com.ecomm.app.enums.OutboxStatus.PENDING"
+            + " and e.availableAt <= :now order by e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Limit limit);
+
+    // Takes a lease on the rows that are still due; rows another dispatcher got first are left alone
+    @Modifying
+    @Query("update OutboxEvent e set e.claimToken = :token, e.availableAt = :leaseUntil, e.attempts = e.attempts + 1"
+            + " where e.id in :ids and e.status = com.ecomm.app.enums.OutboxStatus.PENDING and e.availableAt <= :now")
+    int claim(@Param("ids") Collection<Long> ids, @Param("token") String token,
+              @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    List<OutboxEvent> findByClaimTokenOrderById(String claimToken);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = com.ecomm.app.enums.OutboxStatus.DONE, e.processedAt = :now,"
+            + " e.claimToken = null, e.lastError = null where e.id in :ids and e.claimToken = :token")
+    int markDone(@Param("ids") Collection<Long> ids, @Param("token") String token, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = :status, e.availableAt = :availableAt, e.lastError = :error,"
+            + " e.claimToken = null where e.id = :id and e.claimToken = :token")
+    int markAttemptFailed(@Param("id") Long id, @Param("token") String token, @Param("status") OutboxStatus status,
+                          @Param("availableAt") LocalDateTime availableAt, @Param("error") String error);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.status = com.ecomm.app.enums.OutboxStatus.DONE and e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    long countByStatus(OutboxStatus status);
+}
@@ -3,12 +3,29 @@ package com.ecomm.app.repo;
 
 
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ecomm.app.dtos.ProductCard;
+import com.ecomm.app.dtos.ProductDetail;
 import com.ecomm.app.models.Product;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.QueryHint;
 
 @Repository // Marks this interface as a Spring repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -22,7 +39,69 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByNameContainingIgnoreCaseAndCategoryIgnoreCase(String name, String category);
 
 	List<Product> findByNameContainingIgnoreCase(String name);
-	
-	
+
+	// Read-only projections: only the columns of the DTO are selected and no entity is managed
+	List<ProductDetail> findAllProjectedBy();
+
+	List<ProductDetail> findProjectedByCategory(String category);
+
+	List<ProductDetail> findProjectedByCategoryIgnoreCase(String category);
+
+	List<ProductDetail> findProjectedByNameContainingIgnoreCase(String name);
+
+	List<ProductDetail> findProjectedByNameContainingIgnoreCaseAndCategoryIgnoreCase(String name, String category);
+
+	Optional<ProductDetail> findDetailById(Long id);
+
+	List<ProductDetail> findProjectedByIdIn(Collection<Long> ids);
+
+	List<ProductCard> findCardsByIdIn(Collection<Long> ids);
+
+	List<ProductCard> findCardsByStockGreaterThan(int stock, Sort sort, Limit limit);
+
+	// Takes quantity units of stock only if that many are left; 0 rows updated means not enough stock.
+	// The row lock is held until the order's transaction ends.
+	@Modifying
+	@Query("update Product p set p.stock = p.stock - :quantity where p.id = :id and p.stock >= :quantity")
+	int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+	// reserveStock for the common case where the product stays in stock; 0 rows means it would sell out
+	// (or there isn't enough), and the caller falls back to reserveStock
+	@Modifying
+	@Query("update Product p set p.stock = p.stock - :quantity where p.id = :id and p.stock > :quantity")
+	int reserveStockKeepingSome(@Param("id") Long id, @Param("quantity") int quantity);
+
+	// Puts back units of a cancelled order
+	@Modifying
+	@Query("update Product p set p.stock = p.stock + :quantity where p.id = :id")
+	int releaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+	// releaseStock for a product that is still in stock; 0 rows means it was sold out (or is gone)
+	@Modifying
+	@Query("update Product p set p.stock = p.stock + :quantity where p.id = :id and p.stock > 0")
+	int releaseStockWhileInStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+	// Keyset (scroll) variants: the position becomes a WHERE on (sortKey, id),
+	// so every page is a bounded range read no matter how deep it is
+	Window<ProductCard> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+	Window<ProductCard> findByCategory(String category, ScrollPosition position, Sort sort, Limit limit);
+
+	Window<ProductCard> findByCategoryIgnoreCase(String category, ScrollPosition position, Sort sort, Limit limit);
+
+	Window<ProductCard> findByNameContainingIgnoreCase(String name, ScrollPosition position, Sort sort, Limit limit);
+
+	Window<ProductCard> findByNameContainingIgnoreCaseAndCategoryIgnoreCase(String name, String category,
+			ScrollPosition position, Sort sort, Limit limit);
+
+	// Forward-only cursor over the whole catalog for exports; the driver fetches EXPORT_FETCH_SIZE rows
+	// per round trip. Must be consumed inside a transaction and closed.
+	int EXPORT_FETCH_SIZE = 500;
+
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	Stream<ProductDetail> streamAllByOrderByIdAsc();
 
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.ecomm.app.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.ecomm.app.models.SalesRollupOrder;
+
+public interface SalesRollupOrderRepository extends JpaRepository<SalesRollupOrder, String> {
+}
@@ -0,0 +1,64 @@
+package com.ecomm.app.repo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ecomm.app.dtos.SalesPoint;
+import com.ecomm.app.enums.RollupGranularity;
+import com.ecomm.app.models.SalesRollup;
+
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    // One category (or ALL) over a bucket range: a range scan on idx_sales_rollup_category
+    @Query("select new com.ecomm.app.dtos.SalesPoint(r.bucketStart, r.category, r.orderCount, r.units, r.revenueCents) "
+            + "from SalesRollup r where r.granularity = :granularity and r.category = :category "
+            + "and r.bucketStart >= :from and r.bucketStart < :to order by r.bucketStart")
+    List<SalesPoint> findSeries(@Param("granularity") RollupGranularity granularity, @Param("category") String category,
+                                @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Every category over a bucket range: a range scan on the unique (granularity, bucket_start, category) key
+    @Query("select new com.ecomm.app.dtos.SalesPoint(r.bucketStart, r.category, r.orderCount, r.units, r.revenueCents) "
+            + "from SalesRollup r where r.granularity = :granularity and r.category <> '" + SalesRollup.ALL + "' "
+            + "and r.bucketStart >= :from and r.bucketStart < :to order by r.bucketStart, r.category")
+    List<SalesPoint> findByCategory(@Param("granularity") RollupGranularity granularity,
+                                    @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Add the deltas to a bucket row in one statement, creating it if needed
+    @Modifying
+    @Query(value = "insert into sales_rollups (granularity, bucket_start, category, order_count, units, revenue_cents) "
+            + "values (:granularity, :bucketStart, :category, :orders, :units, :revenueCents) "
+            + "on conflict (granularity, bucket_start, category) do update set "
+            + "order_count = sales_rollups.order_count + excluded.order_count, "
+            + "units = sales_rollups.units + excluded.units, "
+            + "revenue_cents = sales_rollups.revenue_cents + excluded.revenue_cents",
+            nativeQuery = true)
+    int addPostgres(@Param("granularity") String granularity, @Param("bucketStart") LocalDateTime bucketStart,
+                    @Param("category") String category, @Param("orders") long orders, @Param("units") long units,
+                    @Param("revenueCents") long revenueCents);
+
+    @Modifying
+    @Query(value = "insert into sales_rollups (granularity, bucket_start, category, order_count, units, revenue_cents) "
+            + "values (:granularity, :bucketStart, :category, :orders, :units, :revenueCents) "
+            + "on duplicate key update "
+            + "order_count = order_count + values(order_count), "
+            + "units = units + values(units), "
+            + "revenue_cents = revenue_cents + values(revenue_cents)",
+            nativeQuery = true)
+    int addMySql(@Param("granularity") String granularity, @Param("bucketStart") LocalDateTime bucketStart,
+                 @Param("category") String category, @Param("orders") long orders, @Param("units") long units,
+                 @Param("revenueCents") long revenueCents);
+
+    // Portable fallback: add to an existing row, 0 when there is none yet
+    @Modifying
+    @Query("update SalesRollup r set r.orderCount = r.orderCount + :orders, r.units = r.units + :units, "
+            + "r.revenueCents = r.revenueCents + :revenueCents "
+            + "where r.granularity = :granularity and r.bucketStart = :bucketStart and r.category = :category")
+    int addToExisting(@Param("granularity") RollupGranularity granularity, @Param("bucketStart") LocalDateTime bucketStart,
+                      @Param("category") String category, @Param("orders") long orders, @Param("units") long units,
+                      @Param("revenueCents") long revenueCents);
+}
@@ -0,0 +1,148 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.repo.CartItemRepository;
+import com.ecomm.app.repo.CartRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Deletes carts nobody has changed for cart.reaper.idle-days, so the cart tables only hold live carts.
+ *
+ * Work is done in chunks of cart.reaper.batch-size carts, each its own short transaction (lines, then
+ * carts, both set-based), with a pause between chunks so the deletes never hold locks for long or
+ * starve user traffic. A run stops after cart.reaper.max-batches chunks; the next one picks up the rest.
+ * Runs happen on the reaper's own thread, so the pauses never hold up a scheduler thread; the scheduled
+ * tick only hands the run over, and is skipped while the previous run is still going.
+ *
+ * In cart.store.mode=memory the DB copy of a resident cart can look idle while the user is still on it
+ * (reads do not touch updated_at), so carts resident in the WriteBehindCartStore are skipped. A cart that
+ * is loaded into the store in the moment between that check and the delete gets its row recreated by
+ * the store's next flush.
+ */
+@Service
+public class AbandonedCartReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartReaper.class);
+
+    @Autowired
+    private CartRepository cartRepo;
+
+    @Autowired
+    private CartItemRepository cartItemRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired(required = false)
+    private WriteBehindCartStore cartStore;
+
+    @Value("${cart.reaper.idle-days:30}")
+    private int idleDays;
+
+    @Value("${cart.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cart.reaper.max-batches:100}")
+    private int maxBatches;
+
+    @Value("${cart.reaper.pause-ms:200}")
+    private long pauseMs;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(initialDelayString = "${cart.reaper.initial-delay-ms:60000}",
+            fixedDelayString = "${cart.reaper.interval-ms:3600000}")
+    public void reap() {
+        if (running.compareAndSet(false, true)) {
+            runner.submit(this::run);
+        }
+    }
+
+    private void run() {
+        try {
+            int deleted = reapIdleCarts();
+            if (deleted > 0) {
+                logger.info("Deleted {} abandoned cart(s)", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Abandoned cart reaper failed, will retry on the next run", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Carts deleted by this run
+    public int reapIdleCarts() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(idleDays);
+        int deleted = 0;
+        long after = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Long> candidates = cartRepo.findIdsIdleSince(cutoff, after, Limit.of(batchSize));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            after = candidates.get(candidates.size() - 1);
+            List<Long> ids = withoutResident(candidates);
+            if (!ids.isEmpty()) {
+                deleted += transactionTemplate.execute(status -> {
+                    cartItemRepo.deleteIdleLines(ids, cutoff);
+                    return cartRepo.deleteIdle(ids, cutoff);
+                });
+            }
+            if (candidates.size() < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private List<Long> withoutResident(List<Long> ids) {
+        if (cartStore == null) {
+            return ids;
+        }
+        Set<Long> resident = cartStore.residentCartIds();
+        List<Long> kept = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (!resident.contains(id)) {
+                kept.add(id);
+            }
+        }
+        return kept;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        runner.shutdownNow();
+        runner.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
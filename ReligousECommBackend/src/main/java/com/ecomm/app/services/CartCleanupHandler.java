@@ -0,0 +1,61 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.OrderPlacedEvent;
+import com.ecomm.app.models.OutboxEvent;
+import com.ecomm.app.repo.OrderRepository;
+
+/**
+ * Takes the ordered quantities out of the buyer's cart once the order has committed. Items added to
+ * the cart after checkout stay.
+ *
+ * The order's cart_cleaned_at stamp commits with the cart change, so a redelivered event finds it
+ * set and leaves the cart alone.
+ */
+@Component
+public class CartCleanupHandler implements OutboxHandler {
+
+    private final CartService cartService;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartCleanupHandler(CartService cartService, OrderRepository orderRepository,
+                              TransactionTemplate transactionTemplate) {
+        this.cartService = cartService;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public String eventType() {
+        return OrderPlacedEvent.TYPE;
+    }
+
+    @Override
+    public String name() {
+        return "cart-cleanup";
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        OrderPlacedEvent order = OutboxService.readPayload(event, OrderPlacedEvent.class);
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> ordered = new LinkedHashMap<>();
+        for (OrderPlacedEvent.Line line : order.getItems()) {
+            ordered.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (orderRepository.markCartCleaned(order.getOrderId(), LocalDateTime.now()) > 0) {
+                cartService.removeOrderedItems(order.getUserId(), ordered);
+            }
+        });
+    }
+}
@@ -0,0 +1,210 @@
+package com.ecomm.app.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ecomm.app.dtos.CacheStats;
+
+/**
+ * Small in-process cache for catalog reads (product lists, categories, single products).
+ * Entries are bounded (LRU), expire after a TTL and are dropped precisely by the
+ * ProductService mutation paths. Every mutation bumps the catalog version, so a load
+ * that started before a write never gets stored after it.
+ *
+ * The same versions back the HTTP validators (ETag / Last-Modified) of the catalog endpoints.
+ * Tags include the startup time so they never repeat across restarts.
+ */
+@Component
+public class CatalogCache {
+
+    public static final String ALL_KEY = "all";
+    private static final String CATEGORY_PREFIX = "category:";
+    private static final String EXACT_CATEGORY_PREFIX = "category-exact:";
+    private static final String PRODUCT_PREFIX = "product:";
+    private static final long STARTED_AT = System.currentTimeMillis();
+
+    private final int maxEntries;
+    private final long ttlMs;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final String epoch = Long.toString(STARTED_AT, 36);
+    private volatile long lastModified = STARTED_AT;
+    private final Map<Long, Stamp> productStamps = new ConcurrentHashMap<>();
+
+    // Access-ordered map, so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries;
+
+    public CatalogCache(@Value("${catalog.cache.max-entries:512}") int maxEntries,
+                        @Value("${catalog.cache.ttl-ms:300000}") long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CatalogCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Key for case-insensitive category listings
+    public static String categoryKey(String category) {
+        return CATEGORY_PREFIX + category.trim().toLowerCase();
+    }
+
+    // Key for listings that matched the category exactly as requested
+    public static String exactCategoryKey(String category) {
+        return EXACT_CATEGORY_PREFIX + category;
+    }
+
+    public static String productKey(Long id) {
+        return PRODUCT_PREFIX + id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return (T) entry.value;
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+
+        long loadVersion = version.get();
+        T value = loader.get();
+        synchronized (entries) {
+            // Skip the store if the catalog changed while we were loading
+            if (version.get() == loadVersion) {
+                entries.put(key, new Entry(value, now + ttlMs));
+            }
+        }
+        return value;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Strong validator for any listing: changes whenever any product changes
+    public String catalogETag() {
+        return "\"c-" + epoch + "-" + version.get() + "\"";
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // Strong validator for one product: changes only when that product changes
+    public String productETag(Long id) {
+        Stamp stamp = productStamps.get(id);
+        return "\"p" + id + "-" + epoch + "-" + (stamp != null ? stamp.version : 0) + "\"";
+    }
+
+    public long getProductLastModified(Long id) {
+        Stamp stamp = productStamps.get(id);
+        return stamp != null ? stamp.modifiedAt : STARTED_AT;
+    }
+
+    public void invalidateProduct(Long id) {
+        invalidate(productKey(id));
+        long now = System.currentTimeMillis();
+        productStamps.put(id, new Stamp(version.get(), now));
+        lastModified = now;
+    }
+
+    public void invalidateListings() {
+        invalidate(ALL_KEY);
+        lastModified = System.currentTimeMillis();
+    }
+
+    // Drops everything, for writes that touch too many products to track (bulk import)
+    public void invalidateAll() {
+        synchronized (entries) {
+            version.incrementAndGet();
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+        lastModified = System.currentTimeMillis();
+    }
+
+    // Drops every listing of this category, whatever case it was requested with
+    public void invalidateCategory(String category) {
+        if (category == null) {
+            return;
+        }
+        synchronized (entries) {
+            version.incrementAndGet();
+            Iterator<String> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                String key = it.next();
+                if (matchesCategory(key, CATEGORY_PREFIX, category.trim())
+                        || matchesCategory(key, EXACT_CATEGORY_PREFIX, category)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static boolean matchesCategory(String key, String prefix, String category) {
+        return key.startsWith(prefix) && key.substring(prefix.length()).trim().equalsIgnoreCase(category);
+    }
+
+    private void invalidate(String key) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            if (entries.remove(key) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public CacheStats stats() {
+        synchronized (entries) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), invalidations.get(),
+                    entries.size(), version.get());
+        }
+    }
+
+    private static final class Stamp {
+        private final long version;
+        private final long modifiedAt;
+
+        private Stamp(long version, long modifiedAt) {
+            this.version = version;
+            this.modifiedAt = modifiedAt;
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ecomm.app.dtos.ProductCard;
+import com.ecomm.app.dtos.ProductDetail;
+import com.ecomm.app.dtos.ProductSales;
+import com.ecomm.app.enums.OrderStatus;
+import com.ecomm.app.repo.OrderRepository;
+import com.ecomm.app.repo.ProductRepository;
+
+/**
+ * The homepage's featured products, ranked in the background by rating, stock and recent sales.
+ *
+ * A scheduled job scores a bounded candidate set (best rated in stock plus best sellers) and
+ * publishes an immutable snapshot with a single volatile write, so serving it is a pointer read.
+ * Product edits patch the current snapshot in place of waiting for the next refresh; edits that
+ * land while a refresh is loading are replayed onto the new snapshot before it is published.
+ */
+@Service
+public class FeaturedProductService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeaturedProductService.class);
+
+    private static final double RATING_WEIGHT = 0.4;
+    private static final double SALES_WEIGHT = 0.5;
+    private static final double STOCK_WEIGHT = 0.1;
+    private static final int STOCK_CAP = 10; // stock beyond this doesn't make a product more featurable
+    private static final int CANDIDATES_PER_SLOT = 4;
+    private static final EnumSet<OrderStatus> NOT_SALES =
+            EnumSet.of(OrderStatus.PENDING_PAYMENT, OrderStatus.CANCELLED, OrderStatus.REFUNDED);
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${catalog.featured.size:12}")
+    private int size;
+
+    @Value("${catalog.featured.sales-window-days:30}")
+    private int salesWindowDays;
+
+    private final AtomicLong generations = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    // Product id -> new card (or null when deleted), recorded while a refresh is loading
+    private final Map<Long, ProductCard> editsDuringRefresh = new HashMap<>();
+    private boolean refreshing;
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Only before the first scheduled run has finished
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${catalog.featured.initial-delay-ms:0}",
+            fixedDelayString = "${catalog.featured.refresh-ms:600000}")
+    public void refresh() {
+        synchronized (editsDuringRefresh) {
+            editsDuringRefresh.clear();
+            refreshing = true;
+        }
+        List<ProductCard> ranked;
+        try {
+            ranked = rank();
+        } catch (RuntimeException e) {
+            synchronized (editsDuringRefresh) {
+                refreshing = false;
+            }
+            logger.error("Featured products refresh failed, keeping the previous snapshot", e);
+            if (snapshot == null) {
+                throw e;
+            }
+            return;
+        }
+        synchronized (editsDuringRefresh) {
+            List<ProductCard> items = new ArrayList<>(ranked);
+            for (Map.Entry<Long, ProductCard> edit : editsDuringRefresh.entrySet()) {
+                patch(items, edit.getKey(), edit.getValue());
+            }
+            refreshing = false;
+            Snapshot current = snapshot;
+            if (current == null || !current.getItems().equals(items)) {
+                publish(items);
+            }
+        }
+        logger.debug("Featured products refreshed: {}", snapshot.getItems().size());
+    }
+
+    public void onProductSaved(ProductDetail product) {
+        edit(product.getId(), product.toCard());
+    }
+
+    public void onProductDeleted(Long productId) {
+        edit(productId, null);
+    }
+
+    private void edit(Long productId, ProductCard card) {
+        synchronized (editsDuringRefresh) {
+            if (refreshing) {
+                editsDuringRefresh.put(productId, card);
+            }
+            Snapshot current = snapshot;
+            if (current == null || !current.contains(productId)) {
+                return;
+            }
+            List<ProductCard> items = new ArrayList<>(current.getItems());
+            patch(items, productId, card);
+            publish(items);
+        }
+    }
+
+    // Replaces the product's card, or drops it if it was deleted or sold out
+    private static void patch(List<ProductCard> items, Long productId, ProductCard card) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getId().equals(productId)) {
+                if (card == null || card.getStock() <= 0) {
+                    items.remove(i);
+                } else {
+                    items.set(i, card);
+                }
+                return;
+            }
+        }
+    }
+
+    private void publish(List<ProductCard> items) {
+        snapshot = new Snapshot(List.copyOf(items), generations.incrementAndGet(), System.currentTimeMillis());
+    }
+
+    private List<ProductCard> rank() {
+        int candidates = Math.max(1, size) * CANDIDATES_PER_SLOT;
+        LocalDateTime since = LocalDateTime.now().minusDays(salesWindowDays);
+
+        Map<Long, Long> sales = new HashMap<>();
+        for (ProductSales row : orderRepository.findTopSellingSince(since, NOT_SALES, Limit.of(candidates))) {
+            Long productId = parseId(row.getProductId());
+            if (productId != null) {
+                sales.merge(productId, row.getQuantity(), Long::sum);
+            }
+        }
+
+        Map<Long, ProductCard> pool = new LinkedHashMap<>();
+        for (ProductCard card : productRepository.findCardsByStockGreaterThan(0,
+                Sort.by(Sort.Direction.DESC, "rating").and(Sort.by("id")), Limit.of(candidates))) {
+            pool.put(card.getId(), card);
+        }
+        if (!sales.isEmpty()) {
+            for (ProductCard card : productRepository.findCardsByIdIn(sales.keySet())) {
+                if (card.getStock() > 0) {
+                    pool.put(card.getId(), card);
+                }
+            }
+        }
+
+        long maxSales = 0;
+        for (long quantity : sales.values()) {
+            maxSales = Math.max(maxSales, quantity);
+        }
+        List<Scored> scored = new ArrayList<>(pool.size());
+        for (ProductCard card : pool.values()) {
+            scored.add(new Scored(card, score(card, sales.getOrDefault(card.getId(), 0L), maxSales)));
+        }
+        scored.sort((a, b) -> a.score != b.score
+                ? Double.compare(b.score, a.score)
+                : Long.compare(a.card.getId(), b.card.getId()));
+
+        List<ProductCard> ranked = new ArrayList<>(Math.min(size, scored.size()));
+        for (int i = 0; i < scored.size() && i < size; i++) {
+            ranked.add(scored.get(i).card);
+        }
+        return ranked;
+    }
+
+    // Each signal normalised to [0, 1]; sales on a log scale so one blockbuster doesn't drown the rest
+    static double score(ProductCard card, long sold, long maxSold) {
+        double rating = Math.max(0, Math.min(5, card.getRating())) / 5;
+        double sales = maxSold > 0 ? Math.log1p(sold) / Math.log1p(maxSold) : 0;
+        double stock = (double) Math.min(card.getStock(), STOCK_CAP) / STOCK_CAP;
+        return RATING_WEIGHT * rating + SALES_WEIGHT * sales + STOCK_WEIGHT * stock;
+    }
+
+    private static Long parseId(String productId) {
+        try {
+            return productId == null ? null : Long.valueOf(productId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class Scored {
+        private final ProductCard card;
+        private final double score;
+
+        private Scored(ProductCard card, double score) {
+            this.card = card;
+            this.score = score;
+        }
+    }
+
+    public static final class Snapshot {
+        private final List<ProductCard> items;
+        private final long generation;
+        private final long refreshedAt;
+
+        private Snapshot(List<ProductCard> items, long generation, long refreshedAt) {
+            this.items = items;
+            this.generation = generation;
+            this.refreshedAt = refreshedAt;
+        }
+
+        public List<ProductCard> getItems() {
+            return items;
+        }
+
+        public long getRefreshedAt() {
+            return refreshedAt;
+        }
+
+        public String getETag() {
+            return "\"f-" + EPOCH + "-" + generation + "\"";
+        }
+
+        private boolean contains(Long productId) {
+            for (ProductCard card : items) {
+                if (card.getId().equals(productId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.ecomm.app.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.OrderItemDto;
+import com.ecomm.app.dtos.PlaceOrderRequest;
+import com.ecomm.app.dtos.UserOrderResponse;
+import com.ecomm.app.exceptions.IdempotencyConflictException;
+import com.ecomm.app.models.IdempotencyRecord;
+import com.ecomm.app.repo.IdempotencyRecordRepository;
+
+/**
+ * Idempotency-Key handling for order placement: a retried request gets the order the first attempt
+ * created instead of a second one.
+ *
+ * Three layers, cheapest first. A bounded LRU of recent keys answers replays from memory. Requests
+ * for a key that is still running wait on the first one's future instead of racing it. Behind both,
+ * an idempotency_keys row with a unique (user, key) constraint is inserted in the same transaction as
+ * the order, so even two instances can only create one order per key; the loser reads the winner's.
+ *
+ * Failures are not remembered: a request that failed (out of stock, bad input) can be retried with
+ * the same key. Keys are scoped per user and kept for orders.idempotency.retention-hours.
+ */
+@Service
+public class OrderIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long waitMs;
+    private final int retentionHours;
+
+    private final Map<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Outcome> recent;
+
+    public OrderIdempotencyService(OrderService orderService, IdempotencyRecordRepository recordRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${orders.idempotency.cache-size:1000}") int cacheSize,
+                                   @Value("${orders.idempotency.wait-ms:30000}") long waitMs,
+                                   @Value("${orders.idempotency.retention-hours:24}") int retentionHours) {
+        this.orderService = orderService;
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.waitMs = waitMs;
+        this.retentionHours = retentionHours;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Outcome> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Places the order once per (user, key), always for userId whatever the request body says.
+     * Without a key this is a plain placeOrder.
+     */
+    public UserOrderResponse placeOrder(Long userId, String idempotencyKey, PlaceOrderRequest request) {
+        request.setUserId(userId);
+        if (idempotencyKey == null) {
+            return orderService.placeOrder(request);
+        }
+        String key = idempotencyKey.trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = userId + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Outcome cached;
+        synchronized (recent) {
+            cached = recent.get(scopedKey);
+        }
+        if (cached != null) {
+            return cached.replay(fingerprint);
+        }
+
+        CompletableFuture<Outcome> mine = new CompletableFuture<>();
+        CompletableFuture<Outcome> running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return await(running).replay(fingerprint);
+        }
+        try {
+            Outcome outcome = execute(userId, key, fingerprint, request);
+            synchronized (recent) {
+                recent.put(scopedKey, outcome);
+            }
+            mine.complete(outcome);
+            return outcome.replay(fingerprint);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    private Outcome execute(Long userId, String key, String fingerprint, PlaceOrderRequest request) {
+        // Used before, possibly on another instance or before a restart
+        Outcome stored = stored(userId, key);
+        if (stored != null) {
+            return stored;
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                // Claim the key first: a concurrent claim of the same key blocks here on the unique
+                // index until this transaction ends, then fails instead of placing a second order
+                IdempotencyRecord record = new IdempotencyRecord();
+                record.setUserId(userId);
+                record.setIdempotencyKey(key);
+                record.setFingerprint(fingerprint);
+                record.setCreatedAt(LocalDateTime.now());
+                recordRepository.saveAndFlush(record);
+
+                UserOrderResponse response = orderService.placeOrder(request);
+                record.setOrderId(response.getId());
+                return new Outcome(fingerprint, response);
+            });
+        } catch (DataIntegrityViolationException e) {
+            stored = stored(userId, key);
+            if (stored == null) {
+                throw e;
+            }
+            return stored;
+        }
+    }
+
+    private Outcome stored(Long userId, String key) {
+        return recordRepository.findByUserIdAndIdempotencyKey(userId, key)
+                .filter(record -> record.getOrderId() != null)
+                .map(record -> new Outcome(record.getFingerprint(), orderService.getOrderById(record.getOrderId())))
+                .orElse(null);
+    }
+
+    private Outcome await(CompletableFuture<Outcome> running) {
+        try {
+            return running.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Same failure as the first request; the retry of a failed request must not hide it
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the first request", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Integer deleted = transactionTemplate.execute(status ->
+                recordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted != null && deleted > 0) {
+            logger.info("Purged {} expired idempotency key(s)", deleted);
+        }
+    }
+
+    // What the order was placed from; the client's prices and totals are ignored, so they don't count
+    static String fingerprint(PlaceOrderRequest request) {
+        StringBuilder raw = new StringBuilder()
+                .append(request.getUserId()).append('|')
+                .append(request.getPaymentMethod()).append('|')
+                .append(request.getRazorpayOrderId()).append('|')
+                .append(request.getRazorpayPaymentId()).append('|')
+                .append(request.getShippingAddress());
+        if (request.getItems() != null) {
+            for (OrderItemDto item : request.getItems()) {
+                raw.append('|');
+                if (item != null) {
+                    raw.append(item.getProductId()).append('x').append(item.getQuantity());
+                }
+            }
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(raw.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Outcome {
+        private final String fingerprint;
+        private final UserOrderResponse response;
+
+        private Outcome(String fingerprint, UserOrderResponse response) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+        }
+
+        private UserOrderResponse replay(String requestFingerprint) {
+            if (!fingerprint.equals(requestFingerprint)) {
+                throw new IdempotencyConflictException("Idempotency-Key was already used for a different order");
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ecomm.app.services;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.ecomm.app.dtos.OrderPlacedEvent;
+import com.ecomm.app.models.OutboxEvent;
+
+// Adds a new order to the sales rollups
+@Component
+public class OrderPlacedRollupHandler implements OutboxHandler {
+
+    private final SalesRollupService rollupService;
+
+    public OrderPlacedRollupHandler(SalesRollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    @Override
+    public String eventType() {
+        return OrderPlacedEvent.TYPE;
+    }
+
+    @Override
+    public String name() {
+        return "sales-rollup";
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        rollupService.apply(List.of(event.getAggregateId()));
+    }
+}
@@ -4,19 +4,34 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ecomm.app.dtos.CursorPage;
 import com.ecomm.app.dtos.OrderItemDto;
+import com.ecomm.app.dtos.OrderItemLine;
+import com.ecomm.app.dtos.OrderPlacedEvent;
+import com.ecomm.app.dtos.OrderSearchFilter;
+import com.ecomm.app.dtos.ProductCard;
 import com.ecomm.app.dtos.PlaceOrderRequest;
 import com.ecomm.app.dtos.UserOrderResponse;
 import com.ecomm.app.dtos.UserOrderResponse.OrderItemResponse;
 import com.ecomm.app.enums.OrderStatus;
 import com.ecomm.app.enums.PaymentMethod;
+import com.ecomm.app.exceptions.InsufficientStockException;
 import com.ecomm.app.exceptions.ResourceNotFoundException;
 import com.ecomm.app.models.Order;
 import com.ecomm.app.models.OrderItem;
-import com.ecomm.app.models.Product;
 import com.ecomm.app.models.User;
 import com.ecomm.app.repo.OrderRepository;
 import com.ecomm.app.repo.ProductRepository;
@@ -25,14 +40,22 @@ import com.ecomm.app.repo.UserRepository;
 @Service
 public class OrderService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final OutboxService outboxService;
 
-    public OrderService(OrderRepository orderRepository, UserRepository userRepository, ProductRepository productRepository) {
+    public OrderService(OrderRepository orderRepository, UserRepository userRepository, ProductRepository productRepository,
+                        ProductService productService, OutboxService outboxService) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
+        this.productService = productService;
+        this.outboxService = outboxService;
     }
 
     @Transactional
@@ -42,7 +65,6 @@ public class OrderService {
 
         Order order = new Order();
         order.setUser(user);
-        order.setTotalAmount(request.getTotalAmount());
         order.setShippingAddress(request.getShippingAddress());
         order.setPaymentMethod(request.getPaymentMethod());
         order.setOrderDate(LocalDateTime.now()); // Set current time for order placement
@@ -59,47 +81,199 @@ public class OrderService {
             order.setStatus(OrderStatus.PENDING_PAYMENT); // Generic pending for other unknown methods
         }
 
-        // Add items to the order
-        for (OrderItemDto itemDto : request.getItems()) {
-            OrderItem orderItem = new OrderItem();
-            // In a real app, you'd fetch the Product entity by productId here
-            // to ensure price and other details are correct and current,
-            // preventing tampering from the client side.
-            // For now, we'll trust client-provided data for simplicity.
-            orderItem.setProductId(itemDto.getProductId());
-            orderItem.setName(itemDto.getName());
-            orderItem.setPrice(itemDto.getPrice());
-            orderItem.setQuantity(itemDto.getQuantity());
-            orderItem.setImageUrl(itemDto.getImageUrl());
-            orderItem.setCategory(itemDto.getCategory());
-            order.setTotalAmount(order.getTotalAmount()); // Double-check total amount to prevent client tampering
-
-            order.addOrderItem(orderItem);
-        }
+        // Only product ids and quantities come from the client; name, price and total come from the catalog
+        priceItems(order, request.getItems());
 
         Order savedOrder = orderRepository.save(order);
 
+        // Follow-up work (cart cleanup, ...) commits with the order and runs later from the outbox
+        outboxService.publish(OrderPlacedEvent.TYPE, savedOrder.getId(), orderPlacedEvent(savedOrder, user));
+
         // Map the saved order to a response DTO
         return mapOrderToOrderResponse(savedOrder);
     }
 
+    private static OrderPlacedEvent orderPlacedEvent(Order order, User user) {
+        List<OrderPlacedEvent.Line> lines = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            lines.add(new OrderPlacedEvent.Line(Long.valueOf(item.getProductId()), item.getQuantity()));
+        }
+        return new OrderPlacedEvent(order.getId(), user.getId(), order.getPaymentMethod(), order.getTotalAmount(), lines);
+    }
+
+    /**
+     * Adds the order lines and sets the total from current Product rows, fetched with one query for
+     * the whole order. Quantities and prices are copied into parallel primitive arrays first and the
+     * total is summed in integer cents, so the pricing loop neither boxes nor accumulates rounding.
+     */
+    private void priceItems(Order order, List<OrderItemDto> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one item");
+        }
+        int n = items.size();
+        long[] productIds = new long[n];
+        int[] quantities = new int[n];
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            OrderItemDto item = items.get(i);
+            if (item == null || item.getProductId() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Every item needs a productId and a positive quantity");
+            }
+            try {
+                productIds[i] = Long.parseLong(item.getProductId().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid productId: " + item.getProductId());
+            }
+            quantities[i] = item.getQuantity();
+            ids.add(productIds[i]);
+        }
+
+        Map<Long, ProductCard> products = new HashMap<>();
+        for (ProductCard product : productRepository.findCardsByIdIn(ids)) {
+            products.put(product.getId(), product);
+        }
+        if (products.size() != ids.size()) {
+            ids.removeAll(products.keySet());
+            throw new ResourceNotFoundException("Product not found: " + ids);
+        }
+        reserveStock(productIds, quantities);
+
+        ProductCard[] lineProducts = new ProductCard[n];
+        long[] unitCents = new long[n];
+        for (int i = 0; i < n; i++) {
+            lineProducts[i] = products.get(productIds[i]);
+            unitCents[i] = Math.round(lineProducts[i].getPrice() * 100);
+        }
+        long totalCents = 0;
+        try {
+            for (int i = 0; i < n; i++) {
+                totalCents = Math.addExact(totalCents, Math.multiplyExact(unitCents[i], (long) quantities[i]));
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Order total is out of range");
+        }
+
+        for (int i = 0; i < n; i++) {
+            ProductCard product = lineProducts[i];
+            OrderItem orderItem = new OrderItem();
+            orderItem.setProductId(Long.toString(productIds[i]));
+            orderItem.setName(product.getName());
+            orderItem.setPrice(unitCents[i] / 100.0);
+            orderItem.setQuantity(quantities[i]);
+            orderItem.setImageUrl(product.getImageUrl());
+            orderItem.setCategory(product.getCategory());
+            order.addOrderItem(orderItem);
+        }
+        order.setTotalAmount(totalCents / 100.0);
+    }
+
+    /**
+     * Takes the stock of every line with one conditional UPDATE per product (quantities of repeated
+     * lines summed), so concurrent checkouts can never oversell: the check and the decrement are one
+     * statement. Products are updated in ascending id order, so two orders locking the same rows
+     * always lock them in the same order and can't deadlock. A product without enough stock throws,
+     * which rolls back the whole order, including the rows already decremented.
+     *
+     * Listings and indexes are only refreshed for products this order may have sold out: the first
+     * UPDATE only matches while some stock is left over, and only when it misses does the plain
+     * reserveStock run and the product count as sold out.
+     */
+    private void reserveStock(long[] productIds, int[] quantities) {
+        Map<Long, Integer> wanted = new TreeMap<>();
+        for (int i = 0; i < productIds.length; i++) {
+            wanted.merge(productIds[i], quantities[i], Math::addExact);
+        }
+        List<Long> soldOut = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : wanted.entrySet()) {
+            if (productRepository.reserveStockKeepingSome(line.getKey(), line.getValue()) == 0) {
+                if (productRepository.reserveStock(line.getKey(), line.getValue()) == 0) {
+                    throw new InsufficientStockException(line.getKey());
+                }
+                soldOut.add(line.getKey());
+            }
+        }
+        if (soldOut.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productService.onAvailabilityChanged(soldOut);
+            }
+        });
+    }
+
+    // Two projection queries (order, items) instead of loading the entity and its lazy associations
+    @Transactional(readOnly = true)
     public UserOrderResponse getOrderById(String orderId) {
-        Order order = orderRepository.findById(orderId)
+        UserOrderResponse order = orderRepository.findResponseById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with ID: " + orderId));
-        return mapOrderToOrderResponse(order);
+        return withItems(List.of(order)).get(0);
     }
 
-    // *** MODIFIED METHOD: Now returns List<UserOrderResponse> ***
+    // Every order of the user, newest first: two queries (orders, then all their items) whatever the count
+    @Transactional(readOnly = true)
     public List<UserOrderResponse> getByUser(Long userId) {
-        userRepository.findById(userId)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId);
+        }
+        return withItems(orderRepository.findHistory(userId, Limit.unlimited()));
+    }
 
-        List<Order> orders = orderRepository.findByUserId(userId);
+    // One keyset page of the user's order history, newest first; same two queries per page
+    @Transactional(readOnly = true)
+    public CursorPage<UserOrderResponse> getHistoryPage(Long userId, int limit, String after) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        OrderCursor cursor = OrderCursor.decode(after);
+        // One extra row tells whether there is a next page
+        List<UserOrderResponse> orders = cursor == null
+                ? orderRepository.findHistory(userId, Limit.of(size + 1))
+                : orderRepository.findHistoryAfter(userId, cursor.getOrderDate(), cursor.getId(), Limit.of(size + 1));
+        return page(orders, size);
+    }
 
-        // Map each Order entity to a UserOrderResponse DTO
-        return orders.stream()
-                     .map(this::mapOrderToOrderResponse) // Use the existing mapping method
-                     .collect(Collectors.toList());
+    /**
+     * Admin search over all orders, newest first, keyset-paged like the order history. The filter
+     * is part of the query rather than the cursor, so the caller passes the same filter with each page.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserOrderResponse> searchOrders(OrderSearchFilter filter, int limit, String after) {
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().isBefore(filter.getTo())) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        OrderCursor cursor = OrderCursor.decode(after);
+        List<UserOrderResponse> orders = orderRepository.search(filter,
+                cursor != null ? cursor.getOrderDate() : null, cursor != null ? cursor.getId() : null, size + 1);
+        return page(orders, size);
+    }
+
+    // Trims the one extra row fetched to detect a next page, and adds the items of the rest
+    private CursorPage<UserOrderResponse> page(List<UserOrderResponse> orders, int size) {
+        boolean hasNext = orders.size() > size;
+        if (hasNext) {
+            orders = orders.subList(0, size);
+        }
+        String next = null;
+        if (hasNext) {
+            UserOrderResponse last = orders.get(orders.size() - 1);
+            next = OrderCursor.encode(last.getOrderDate(), last.getId());
+        }
+        return new CursorPage<>(withItems(orders), next, hasNext);
+    }
+
+    private List<UserOrderResponse> withItems(List<UserOrderResponse> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<String, UserOrderResponse> byId = new HashMap<>();
+        for (UserOrderResponse order : orders) {
+            byId.put(order.getId(), order);
+        }
+        for (OrderItemLine line : orderRepository.findItemLines(byId.keySet())) {
+            byId.get(line.getOrderId()).getItems().add(line.toResponse());
+        }
+        return orders;
     }
 
     private UserOrderResponse mapOrderToOrderResponse(Order order) {
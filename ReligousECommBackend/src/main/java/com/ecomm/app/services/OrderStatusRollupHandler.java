@@ -0,0 +1,35 @@
+package com.ecomm.app.services;
+
+import org.springframework.stereotype.Component;
+
+import com.ecomm.app.dtos.OrderStatusChangedEvent;
+import com.ecomm.app.models.OutboxEvent;
+
+// Adds or removes orders whose status change moved them in or out of the sales figures
+@Component
+public class OrderStatusRollupHandler implements OutboxHandler {
+
+    private final SalesRollupService rollupService;
+
+    public OrderStatusRollupHandler(SalesRollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    @Override
+    public String eventType() {
+        return OrderStatusChangedEvent.TYPE;
+    }
+
+    @Override
+    public String name() {
+        return "sales-rollup-status";
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        OrderStatusChangedEvent change = OutboxService.readPayload(event, OrderStatusChangedEvent.class);
+        if (change.getOrderIds() != null) {
+            rollupService.apply(change.getOrderIds());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.OrderItemLine;
+import com.ecomm.app.dtos.OrderStatusChangedEvent;
+import com.ecomm.app.dtos.OrderStatusStamp;
+import com.ecomm.app.dtos.OrderTransitionReport;
+import com.ecomm.app.dtos.OrderTransitionRequest;
+import com.ecomm.app.enums.OrderStatus;
+import com.ecomm.app.repo.OrderRepository;
+import com.ecomm.app.repo.ProductRepository;
+
+/**
+ * Bulk order status changes (dispatch runs: PAID -> PROCESSING -> SHIPPED -> DELIVERED), validated
+ * against the transitions OrderStatus allows.
+ *
+ * Ids are handled in chunks of orders.transition.chunk-size, each in its own short transaction: one
+ * projection query reads the current statuses, and one UPDATE ... WHERE id IN (...) AND status IN
+ * (legal sources) moves the eligible orders. No Order entity is loaded. The status guard in the
+ * UPDATE keeps it correct against concurrent changes; an order that moved on between the read and
+ * the update is reported as rejected with the status it ended up in. Each chunk also publishes an
+ * ORDER_STATUS_CHANGED outbox event listing the orders it moved.
+ *
+ * A cancelled order can only be refunded if a payment was taken for it. Cancelling an order before
+ * shipment, or refunding one that was paid but never dispatched, puts its units back in stock in the
+ * same chunk transaction, once per order (stock_released_at). A refund after delivery does not.
+ */
+@Service
+public class OrderStatusService {
+
+    public static final int MAX_ORDERS_PER_REQUEST = 10_000;
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxService outboxService;
+    private final int chunkSize;
+
+    public OrderStatusService(OrderRepository orderRepository, ProductRepository productRepository,
+                              ProductService productService, TransactionTemplate transactionTemplate,
+                              OutboxService outboxService,
+                              @Value("${orders.transition.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxService = outboxService;
+        this.chunkSize = chunkSize;
+    }
+
+    public OrderTransitionReport transition(OrderTransitionRequest request) {
+        OrderStatus target = request.getTarget();
+        if (target == null) {
+            throw new IllegalArgumentException("target status is required");
+        }
+        if (request.getOrderIds() == null || request.getOrderIds().isEmpty()) {
+            throw new IllegalArgumentException("orderIds must not be empty");
+        }
+        Set<OrderStatus> sources = target.legalSources();
+        if (request.getFrom() != null) {
+            if (!request.getFrom().canTransitionTo(target)) {
+                throw new IllegalArgumentException("An order cannot go from " + request.getFrom() + " to " + target);
+            }
+            sources = Set.of(request.getFrom());
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No order can be moved to " + target);
+        }
+
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : request.getOrderIds()) {
+            if (id == null || id.isBlank()) {
+                throw new IllegalArgumentException("orderIds must not contain blank ids");
+            }
+            distinct.add(id.trim());
+        }
+        if (distinct.size() > MAX_ORDERS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_ORDERS_PER_REQUEST + " orders per request");
+        }
+
+        List<String> ids = new ArrayList<>(distinct);
+        List<OrderTransitionReport.Rejected> rejected = new ArrayList<>();
+        int transitioned = 0;
+        for (int start = 0; start < ids.size(); start += chunkSize) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + chunkSize));
+            Set<OrderStatus> allowed = sources;
+            transitioned += transactionTemplate.execute(status -> transitionChunk(chunk, allowed, target, rejected));
+        }
+        return new OrderTransitionReport(target, ids.size(), transitioned, rejected);
+    }
+
+    // Orders moved to target; the others are added to rejected
+    private int transitionChunk(List<String> chunk, Set<OrderStatus> sources, OrderStatus target,
+                                List<OrderTransitionReport.Rejected> rejected) {
+        Map<String, OrderStatusStamp> current = stamps(chunk);
+        List<String> eligible = new ArrayList<>(chunk.size());
+        for (String id : chunk) {
+            OrderStatusStamp stamp = current.get(id);
+            OrderStatus status = stamp != null ? stamp.getStatus() : null;
+            if (status == null) {
+                rejected.add(new OrderTransitionReport.Rejected(id, null, "Order not found"));
+            } else if (!sources.contains(status)) {
+                rejected.add(new OrderTransitionReport.Rejected(id, status, reason(status, sources, target)));
+            } else if (unpaidRefund(stamp, target)) {
+                rejected.add(new OrderTransitionReport.Rejected(id, status, "Cancelled before payment, nothing to refund"));
+            } else {
+                eligible.add(id);
+            }
+        }
+        if (eligible.isEmpty()) {
+            return 0;
+        }
+        // Locked before the update, so each of them is still in a source status when it runs and moves
+        List<String> restocked = lockRestocked(eligible, sources, target);
+        int updated = target == OrderStatus.REFUNDED
+                ? orderRepository.refund(eligible, sources)
+                : orderRepository.transitionStatus(eligible, sources, target);
+        releaseStock(restocked);
+        if (updated == eligible.size()) {
+            publishMoved(eligible, target);
+            return updated;
+        }
+        // Some orders changed status after they were read; find out which and where they are now
+        Map<String, OrderStatusStamp> after = stamps(eligible);
+        List<String> moved = new ArrayList<>(eligible.size());
+        for (String id : eligible) {
+            OrderStatusStamp stamp = after.get(id);
+            OrderStatus status = stamp != null ? stamp.getStatus() : null;
+            if (status == target) {
+                moved.add(id);
+            } else if (status == null) {
+                rejected.add(new OrderTransitionReport.Rejected(id, null, "Order not found"));
+            } else if (unpaidRefund(stamp, target)) {
+                rejected.add(new OrderTransitionReport.Rejected(id, status, "Cancelled before payment, nothing to refund"));
+            } else if (sources.contains(status)) {
+                // A repeatable-read snapshot can still show the status from before the other change
+                rejected.add(new OrderTransitionReport.Rejected(id, status, "Changed concurrently, retry"));
+            } else {
+                rejected.add(new OrderTransitionReport.Rejected(id, status, reason(status, sources, target)));
+            }
+        }
+        publishMoved(moved, target);
+        return moved.size();
+    }
+
+    private static boolean unpaidRefund(OrderStatusStamp stamp, OrderStatus target) {
+        return target == OrderStatus.REFUNDED && stamp.getStatus() == OrderStatus.CANCELLED && !stamp.isPaid();
+    }
+
+    // Orders this move hands stock back for: in a status the target restocks from, not released yet
+    private List<String> lockRestocked(List<String> eligible, Set<OrderStatus> sources, OrderStatus target) {
+        Set<OrderStatus> from = EnumSet.noneOf(OrderStatus.class);
+        from.addAll(target.restocksFrom());
+        from.retainAll(sources);
+        return from.isEmpty() ? List.of() : orderRepository.lockStockHolders(eligible, from);
+    }
+
+    /**
+     * Adds the units of these orders back to stock. Products are updated in id order, like
+     * reserveStock, and the caches and indexes of products back in stock are refreshed once the chunk
+     * has committed.
+     */
+    private void releaseStock(List<String> holders) {
+        if (holders.isEmpty()) {
+            return;
+        }
+        orderRepository.markStockReleased(holders, LocalDateTime.now());
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItemLine line : orderRepository.findItemLines(holders)) {
+            Long productId = parseId(line.getProductId());
+            if (productId != null && line.getQuantity() > 0) {
+                quantities.merge(productId, line.getQuantity(), Math::addExact);
+            }
+        }
+        List<Long> backInStock = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            // Only a sold-out product changes what listings show; 0 rows twice if the product is gone
+            if (productRepository.releaseStockWhileInStock(entry.getKey(), entry.getValue()) == 0
+                    && productRepository.releaseStock(entry.getKey(), entry.getValue()) > 0) {
+                backInStock.add(entry.getKey());
+            }
+        }
+        if (backInStock.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productService.onAvailabilityChanged(backInStock);
+            }
+        });
+    }
+
+    private static Long parseId(String productId) {
+        try {
+            return productId == null ? null : Long.valueOf(productId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // One outbox event per chunk, committed with the UPDATE it describes
+    private void publishMoved(List<String> moved, OrderStatus target) {
+        if (!moved.isEmpty()) {
+            outboxService.publish(OrderStatusChangedEvent.TYPE, null,
+                    new OrderStatusChangedEvent(new ArrayList<>(moved), target));
+        }
+    }
+
+    private Map<String, OrderStatusStamp> stamps(List<String> ids) {
+        Map<String, OrderStatusStamp> stamps = new HashMap<>();
+        for (OrderStatusStamp stamp : orderRepository.findStatuses(ids)) {
+            stamps.put(stamp.getId(), stamp);
+        }
+        return stamps;
+    }
+
+    private static String reason(OrderStatus status, Set<OrderStatus> sources, OrderStatus target) {
+        if (status == target) {
+            return "Already " + target;
+        }
+        if (status.canTransitionTo(target)) {
+            return "Not in " + sources; // legal, but excluded by the request's from
+        }
+        return "Cannot go from " + status + " to " + target;
+    }
+}
@@ -0,0 +1,208 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.enums.OutboxStatus;
+import com.ecomm.app.models.OutboxEvent;
+import com.ecomm.app.repo.OutboxEventRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers outbox rows to their handlers in the background.
+ *
+ * Each poll claims up to outbox.batch-size due rows with one conditional update that stamps a claim
+ * token and a lease (outbox.lease-ms), runs the handlers on outbox.workers threads outside any
+ * transaction, then marks the successful rows done with one more update. A failed row is retried with
+ * exponential backoff until outbox.max-attempts, after which it is parked as FAILED. If the instance
+ * dies mid-batch the lease simply runs out and the rows are picked up again, so delivery is
+ * at-least-once. A handler still running when its lease runs out counts as a failed attempt, so a hung
+ * handler cannot stall the poller. Several instances can poll the same table: a row is only ever claimed by one of them.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+
+    private final int batchSize;
+    private final int maxBatches;
+    private final int maxAttempts;
+    private final long leaseMs;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final int retentionHours;
+
+    public OutboxDispatcher(OutboxEventRepository outboxRepository, OutboxService outboxService,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${outbox.workers:4}") int workers,
+                            @Value("${outbox.batch-size:100}") int batchSize,
+                            @Value("${outbox.max-batches:10}") int maxBatches,
+                            @Value("${outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.lease-ms:60000}") long leaseMs,
+                            @Value("${outbox.backoff-ms:1000}") long backoffMs,
+                            @Value("${outbox.max-backoff-ms:600000}") long maxBackoffMs,
+                            @Value("${outbox.retention-hours:72}") int retentionHours) {
+        this.outboxRepository = outboxRepository;
+        this.outboxService = outboxService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.maxAttempts = maxAttempts;
+        this.leaseMs = leaseMs;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.retentionHours = retentionHours;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "outbox-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(initialDelayString = "${outbox.initial-delay-ms:5000}",
+            fixedDelayString = "${outbox.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            dispatchDue();
+        } catch (RuntimeException e) {
+            logger.error("Outbox dispatch failed, will retry on the next poll", e);
+        }
+    }
+
+    // Rows delivered successfully by this run
+    public int dispatchDue() {
+        int delivered = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> due = outboxRepository.findDueIds(now, Limit.of(batchSize));
+            if (due.isEmpty()) {
+                break;
+            }
+            String token = UUID.randomUUID().toString();
+            List<OutboxEvent> claimed = transactionTemplate.execute(status -> {
+                outboxRepository.claim(due, token, now, now.plusNanos(leaseMs * 1_000_000));
+                return outboxRepository.findByClaimTokenOrderById(token);
+            });
+            delivered += deliver(claimed, token);
+            if (due.size() < batchSize) {
+                break;
+            }
+        }
+        return delivered;
+    }
+
+    private int deliver(List<OutboxEvent> claimed, String token) {
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<Throwable>> outcomes = new ArrayList<>(claimed.size());
+        for (OutboxEvent event : claimed) {
+            // Past the lease another poll may claim the row again, so stop waiting for it
+            outcomes.add(CompletableFuture.supplyAsync(() -> run(event), workers)
+                    .orTimeout(leaseMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> timeout(e) ? new TimeoutException("Handler still running after the "
+                            + leaseMs + " ms lease") : e));
+        }
+
+        List<Long> succeeded = new ArrayList<>(claimed.size());
+        for (int i = 0; i < claimed.size(); i++) {
+            OutboxEvent event = claimed.get(i);
+            Throwable failure = outcomes.get(i).join();
+            if (failure == null) {
+                succeeded.add(event.getId());
+            } else {
+                recordFailure(event, token, failure);
+            }
+        }
+        if (!succeeded.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.markDone(succeeded, token, now));
+        }
+        return succeeded.size();
+    }
+
+    private static boolean timeout(Throwable e) {
+        return e instanceof TimeoutException
+                || (e instanceof CompletionException && e.getCause() instanceof TimeoutException);
+    }
+
+    // The handler's failure, or null on success
+    private Throwable run(OutboxEvent event) {
+        OutboxHandler handler = outboxService.handler(event.getHandler());
+        if (handler == null) {
+            return new IllegalStateException("No outbox handler named '" + event.getHandler() + "'");
+        }
+        try {
+            handler.handle(event);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, String token, Throwable failure) {
+        // attempts was already incremented by the claim
+        boolean giveUp = event.getAttempts() >= maxAttempts;
+        LocalDateTime retryAt = LocalDateTime.now().plusNanos(backoff(event.getAttempts()) * 1_000_000);
+        String error = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        String lastError = error;
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.markAttemptFailed(event.getId(), token,
+                giveUp ? OutboxStatus.FAILED : OutboxStatus.PENDING, retryAt, lastError));
+        if (giveUp) {
+            logger.error("Outbox event {} ({} -> {}) failed {} times, giving up", event.getId(),
+                    event.getEventType(), event.getHandler(), event.getAttempts(), failure);
+        } else {
+            logger.warn("Outbox event {} ({} -> {}) failed attempt {}: {}", event.getId(),
+                    event.getEventType(), event.getHandler(), event.getAttempts(), lastError);
+        }
+    }
+
+    // backoff-ms doubled per attempt, capped at max-backoff-ms
+    private long backoff(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(backoffMs << shift, maxBackoffMs);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:3600000}")
+    public void purgeProcessed() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxRepository.deleteProcessedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted != null && deleted > 0) {
+            logger.info("Purged {} delivered outbox event(s)", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
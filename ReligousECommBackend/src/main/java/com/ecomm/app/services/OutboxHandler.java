@@ -0,0 +1,21 @@
+package com.ecomm.app.services;
+
+import com.ecomm.app.models.OutboxEvent;
+
+/**
+ * Post-commit work for one event type. Every handler bean gets its own outbox row per event, so
+ * handlers are retried independently of each other.
+ *
+ * Delivery is at-least-once: a handler can see the same event again (after a crash, or a retry of
+ * an attempt whose outcome was lost), so it has to be idempotent.
+ */
+public interface OutboxHandler {
+
+    // Event type this handler subscribes to
+    String eventType();
+
+    // Stable name stored on the outbox rows; renaming a handler orphans its pending rows
+    String name();
+
+    void handle(OutboxEvent event) throws Exception;
+}
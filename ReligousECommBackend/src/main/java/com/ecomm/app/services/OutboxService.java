@@ -0,0 +1,104 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ecomm.app.enums.OutboxStatus;
+import com.ecomm.app.models.OutboxEvent;
+import com.ecomm.app.repo.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Transactional outbox. publish() must run inside the transaction that makes the change the event
+ * describes, so the outbox rows commit (or roll back) together with it; OutboxDispatcher delivers
+ * them to the handlers afterwards, off the request thread.
+ */
+@Service
+public class OutboxService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final OutboxEventRepository outboxRepository;
+    private final ObjectProvider<OutboxHandler> handlerProvider;
+
+    private volatile Map<String, OutboxHandler> handlersByName;
+    private volatile Map<String, List<OutboxHandler>> handlersByType;
+
+    public OutboxService(OutboxEventRepository outboxRepository, ObjectProvider<OutboxHandler> handlerProvider) {
+        this.outboxRepository = outboxRepository;
+        this.handlerProvider = handlerProvider;
+    }
+
+    // One row per handler subscribed to the event type; nothing is written if there are none
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String eventType, String aggregateId, Object payload) {
+        List<OutboxHandler> subscribers = handlersByType().getOrDefault(eventType, List.of());
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + eventType + " event", e);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> rows = new ArrayList<>(subscribers.size());
+        for (OutboxHandler handler : subscribers) {
+            OutboxEvent row = new OutboxEvent();
+            row.setEventType(eventType);
+            row.setHandler(handler.name());
+            row.setAggregateId(aggregateId);
+            row.setPayload(json);
+            row.setStatus(OutboxStatus.PENDING);
+            row.setAvailableAt(now);
+            row.setCreatedAt(now);
+            rows.add(row);
+        }
+        outboxRepository.saveAll(rows);
+    }
+
+    public static <T> T readPayload(OutboxEvent event, Class<T> type) {
+        try {
+            return MAPPER.readValue(event.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable payload on outbox event " + event.getId(), e);
+        }
+    }
+
+    public OutboxHandler handler(String name) {
+        if (handlersByName == null) {
+            loadHandlers();
+        }
+        return handlersByName.get(name);
+    }
+
+    private Map<String, List<OutboxHandler>> handlersByType() {
+        if (handlersByType == null) {
+            loadHandlers();
+        }
+        return handlersByType;
+    }
+
+    private synchronized void loadHandlers() {
+        Map<String, OutboxHandler> byName = new HashMap<>();
+        Map<String, List<OutboxHandler>> byType = new HashMap<>();
+        handlerProvider.orderedStream().forEach(handler -> {
+            if (byName.putIfAbsent(handler.name(), handler) != null) {
+                throw new IllegalStateException("Duplicate outbox handler name: " + handler.name());
+            }
+            byType.computeIfAbsent(handler.eventType(), type -> new ArrayList<>()).add(handler);
+        });
+        handlersByType = byType;
+        handlersByName = byName;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ecomm.app.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import com.ecomm.app.enums.ProductSort;
+import com.ecomm.app.dtos.ProductCard;
+
+/**
+ * Opaque "after" token for keyset pagination over (sortKey, id).
+ * The token carries the sort and direction it was issued for, so it can't be replayed
+ * against a different ordering.
+ */
+public final class ProductCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private ProductCursor() {
+    }
+
+    public static String encode(ProductSort sort, Sort.Direction direction, ProductCard last) {
+        StringBuilder raw = new StringBuilder()
+                .append(sort.name()).append(SEPARATOR)
+                .append(direction.name()).append(SEPARATOR)
+                .append(last.getId());
+        if (sort != ProductSort.ID) {
+            raw.append(SEPARATOR).append(sort.keyOf(last));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetScrollPosition decode(String token, ProductSort sort, Sort.Direction direction) {
+        if (token == null || token.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split("\\" + SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (parts.length < 3 || !parts[0].equals(sort.name()) || !parts[1].equals(direction.name())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            if (sort != ProductSort.ID) {
+                if (parts.length < 4) {
+                    throw new IllegalArgumentException("Malformed cursor");
+                }
+                keys.put(sort.getProperty(), sort == ProductSort.NAME ? parts[3] : Double.valueOf(parts[3]));
+            }
+            keys.put("id", Long.valueOf(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return ScrollPosition.forward(keys);
+    }
+}
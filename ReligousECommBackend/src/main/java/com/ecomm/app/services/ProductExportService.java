@@ -0,0 +1,121 @@
+package com.ecomm.app.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.ProductDetail;
+import com.ecomm.app.enums.CatalogFormat;
+import com.ecomm.app.repo.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Full catalog dump as CSV or NDJSON, written row by row as the cursor advances, so memory stays
+ * flat whatever the catalog size. The CSV columns are the ones ProductImportService reads (plus id),
+ * so an export can be fed straight back into an import.
+ */
+@Service
+public class ProductExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductExportService.class);
+
+    private static final String CSV_HEADER = "id,name,category,price,originalPrice,stock,imageUrl,description,rating";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Runs on the response's writer thread, so it opens its own read-only transaction for the cursor
+    public long export(OutputStream out, CatalogFormat format) throws IOException {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        long started = System.currentTimeMillis();
+        try {
+            long rows = transaction.execute(status -> {
+                try (Stream<ProductDetail> products = productRepository.streamAllByOrderByIdAsc()) {
+                    if (format == CatalogFormat.CSV) {
+                        writer.write(CSV_HEADER);
+                        writer.write('\n');
+                    }
+                    long count = 0;
+                    for (ProductDetail product : (Iterable<ProductDetail>) products::iterator) {
+                        if (format == CatalogFormat.CSV) {
+                            writeCsv(writer, product);
+                        } else {
+                            writer.write(objectMapper.writeValueAsString(product));
+                            writer.write('\n');
+                        }
+                        count++;
+                    }
+                    return count;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            logger.info("Exported {} products as {} in {} ms", rows, format, System.currentTimeMillis() - started);
+            return rows;
+        } catch (UncheckedIOException e) {
+            // Usually the client going away mid-download
+            throw e.getCause();
+        }
+    }
+
+    private static void writeCsv(Writer writer, ProductDetail product) throws IOException {
+        writer.write(String.valueOf(product.getId()));
+        writer.write(',');
+        writeCsvField(writer, product.getName());
+        writer.write(',');
+        writeCsvField(writer, product.getCategory());
+        writer.write(',');
+        writer.write(Double.toString(product.getPrice()));
+        writer.write(',');
+        writer.write(Double.toString(product.getOriginalPrice()));
+        writer.write(',');
+        writer.write(Integer.toString(product.getStock()));
+        writer.write(',');
+        writeCsvField(writer, product.getImageUrl());
+        writer.write(',');
+        writeCsvField(writer, product.getDescription());
+        writer.write(',');
+        writer.write(Double.toString(product.getRating()));
+        writer.write('\n');
+    }
+
+    // RFC 4180 quoting, only when the value needs it
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
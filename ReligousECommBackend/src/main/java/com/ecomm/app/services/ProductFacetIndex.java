@@ -0,0 +1,158 @@
+package com.ecomm.app.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.ecomm.app.dtos.CategoryFacet;
+import com.ecomm.app.dtos.ProductDetail;
+import com.ecomm.app.dtos.ProductFacets;
+
+/**
+ * Per-category counts, price range and rating histogram for the whole catalog, kept up to date
+ * by ProductService mutations instead of running a GROUP BY per request.
+ *
+ * Prices are held per category as a sorted multiset, so min/max stay exact when the cheapest or
+ * dearest product goes away. Filtered facets (e.g. a name search) are aggregated on the fly over
+ * the matching products with the same code.
+ */
+@Component
+public class ProductFacetIndex {
+
+    public static final int RATING_BUCKETS = 5;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, ProductDetail> products = new HashMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Iterable<ProductDetail> all) {
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            groups.clear();
+            for (ProductDetail product : all) {
+                addLocked(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds the product, or moves it if its category, price or rating changed
+    public void put(ProductDetail product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ProductFacets facets() {
+        lock.readLock().lock();
+        try {
+            return summarize(groups.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Facets of an arbitrary product set, e.g. the hits of a name search
+    public static ProductFacets facetsOf(Iterable<ProductDetail> matches) {
+        Map<String, Group> byCategory = new HashMap<>();
+        for (ProductDetail product : matches) {
+            byCategory.computeIfAbsent(product.getCategory(), Group::new).add(product);
+        }
+        return summarize(byCategory.values());
+    }
+
+    private void addLocked(ProductDetail product) {
+        products.put(product.getId(), product);
+        groups.computeIfAbsent(product.getCategory(), Group::new).add(product);
+    }
+
+    private void removeLocked(Long productId) {
+        ProductDetail previous = products.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        Group group = groups.get(previous.getCategory());
+        group.remove(previous);
+        if (group.count == 0) {
+            groups.remove(previous.getCategory());
+        }
+    }
+
+    private static ProductFacets summarize(Iterable<Group> all) {
+        List<CategoryFacet> categories = new ArrayList<>();
+        long total = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (Group group : all) {
+            double groupMin = group.prices.firstKey();
+            double groupMax = group.prices.lastKey();
+            categories.add(new CategoryFacet(group.category, group.count, groupMin, groupMax, group.ratings.clone()));
+            total += group.count;
+            min = Math.min(min, groupMin);
+            max = Math.max(max, groupMax);
+        }
+        categories.sort(Comparator.comparing(CategoryFacet::getCategory, Comparator.nullsLast(Comparator.naturalOrder())));
+        return total == 0
+                ? new ProductFacets(0, 0, 0, categories)
+                : new ProductFacets(total, min, max, categories);
+    }
+
+    static int ratingBucket(double rating) {
+        return (int) Math.max(0, Math.min(RATING_BUCKETS - 1, Math.floor(rating)));
+    }
+
+    private static final class Group {
+        private final String category;
+        private long count;
+        private final TreeMap<Double, Integer> prices = new TreeMap<>(); // price -> number of products at it
+        private final long[] ratings = new long[RATING_BUCKETS];
+
+        private Group(String category) {
+            this.category = category;
+        }
+
+        void add(ProductDetail product) {
+            count++;
+            prices.merge(product.getPrice(), 1, Integer::sum);
+            ratings[ratingBucket(product.getRating())]++;
+        }
+
+        void remove(ProductDetail product) {
+            count--;
+            prices.computeIfPresent(product.getPrice(), (price, n) -> n == 1 ? null : n - 1);
+            ratings[ratingBucket(product.getRating())]--;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.ecomm.app.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.ImportReport;
+import com.ecomm.app.enums.CatalogFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streaming bulk import of products from CSV or NDJSON.
+ *
+ * Rows are parsed and validated one at a time straight off the request stream and written with
+ * JDBC batch inserts, one transaction per batch. Product.id is IDENTITY, which stops Hibernate from
+ * batching, so this goes around JPA; the catalog cache and indexes are reloaded once at the end.
+ * If a batch is rejected by the DB it is replayed row by row so only the bad rows are reported.
+ *
+ * CSV needs a header row naming the columns (name, category, price, originalPrice, stock,
+ * imageUrl, description, rating; snake_case works too). NDJSON is one JSON object per line.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String INSERT_SQL = "insert into product "
+            + "(name, category, price, original_price, stock, image_url, description, rating) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_TEXT_LENGTH = 255; // default varchar length of the Product columns
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Value("${catalog.import.batch-size:1000}")
+    private int batchSize;
+
+    public ImportReport importProducts(InputStream in, CatalogFormat format) throws IOException {
+        long started = System.currentTimeMillis();
+        Run run = new Run(Math.max(1, batchSize));
+        try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            Iterator<RawRow> rows = format == CatalogFormat.CSV ? new CsvRows(reader) : new NdjsonRows(reader, objectMapper);
+            while (rows.hasNext()) {
+                RawRow row = rows.next();
+                run.report.setRows(run.report.getRows() + 1);
+                if (row.error != null) {
+                    run.reject(row.number, row.error);
+                    continue;
+                }
+                try {
+                    run.add(row.number, toParams(row.fields));
+                } catch (IllegalArgumentException e) {
+                    run.reject(row.number, e.getMessage());
+                }
+            }
+            run.flush();
+        } finally {
+            if (run.report.getImported() > 0) {
+                productService.reloadCatalog();
+            }
+        }
+        run.report.setElapsedMs(System.currentTimeMillis() - started);
+        logger.info("Product import finished: {} rows, {} imported, {} failed in {} batches, {} ms",
+                run.report.getRows(), run.report.getImported(), run.report.getFailed(),
+                run.report.getBatches(), run.report.getElapsedMs());
+        return run.report;
+    }
+
+    // Validated insert parameters, in INSERT_SQL column order
+    private static Object[] toParams(Map<String, String> fields) {
+        String name = text(fields, "name");
+        if (name == null) {
+            throw new IllegalArgumentException("name is required");
+        }
+        Double price = number(fields, "price");
+        if (price == null) {
+            throw new IllegalArgumentException("price is required");
+        }
+        Double originalPrice = number(fields, "originalprice");
+        Double stock = number(fields, "stock");
+        Double rating = number(fields, "rating");
+
+        if (price < 0 || (originalPrice != null && originalPrice < 0)) {
+            throw new IllegalArgumentException("price must not be negative");
+        }
+        if (stock != null && (stock < 0 || stock != Math.rint(stock) || stock > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("stock must be a non-negative whole number");
+        }
+        if (rating != null && (rating < 0 || rating > 5)) {
+            throw new IllegalArgumentException("rating must be between 0 and 5");
+        }
+        return new Object[] {
+                name,
+                text(fields, "category"),
+                price,
+                originalPrice != null ? originalPrice : price,
+                stock != null ? stock.intValue() : 0,
+                text(fields, "imageurl"),
+                text(fields, "description"),
+                rating != null ? rating : 0d
+        };
+    }
+
+    private static String text(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.trim();
+        if (value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(key + " is longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+        return value;
+    }
+
+    private static Double number(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            if (Double.isNaN(parsed) || Double.isInfinite(parsed)) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not a number: '" + value + "'");
+        }
+    }
+
+    // Header/field names compared without case, spaces, '_' or '-' (original_price == originalPrice)
+    private static String fieldKey(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+
+    // State of one import: the pending batch plus the report being built
+    private final class Run {
+        private final ImportReport report = new ImportReport();
+        private final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        private final List<Object[]> batch;
+        private final long[] batchRows;
+
+        private Run(int size) {
+            this.batch = new ArrayList<>(size);
+            this.batchRows = new long[size];
+        }
+
+        void add(long row, Object[] params) {
+            batchRows[batch.size()] = row;
+            batch.add(params);
+            if (batch.size() == batchRows.length) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+                report.setImported(report.getImported() + batch.size());
+            } catch (DataAccessException e) {
+                // The whole batch rolled back; replay it row by row to find the rows the DB refuses
+                logger.warn("Import batch rejected, retrying its {} rows one by one: {}",
+                        batch.size(), e.getMostSpecificCause().getMessage());
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        jdbcTemplate.update(INSERT_SQL, batch.get(i));
+                        report.setImported(report.getImported() + 1);
+                    } catch (DataAccessException rowError) {
+                        reject(batchRows[i], rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            report.setBatches(report.getBatches() + 1);
+            batch.clear();
+        }
+
+        void reject(long row, String message) {
+            report.setFailed(report.getFailed() + 1);
+            if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+                report.getErrors().add(new ImportReport.RowError(row, message));
+            } else {
+                report.setErrorsTruncated(true);
+            }
+        }
+    }
+
+    // One record off the input: its fields by fieldKey, or why it could not be parsed
+    private static final class RawRow {
+        private final long number;
+        private final Map<String, String> fields;
+        private final String error;
+
+        private RawRow(long number, Map<String, String> fields, String error) {
+            this.number = number;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    // One JSON object per line; blank lines are skipped but still counted
+    private static final class NdjsonRows implements Iterator<RawRow> {
+        private final BufferedReader reader;
+        private final ObjectMapper mapper;
+        private long line;
+        private String next;
+
+        private NdjsonRows(Reader reader, ObjectMapper mapper) {
+            this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    String read = reader.readLine();
+                    if (read == null) {
+                        return false;
+                    }
+                    line++;
+                    if (!read.isBlank()) {
+                        next = read;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read import stream", e);
+            }
+        }
+
+        @Override
+        public RawRow next() {
+            hasNext();
+            String text = next;
+            next = null;
+            try {
+                JsonNode node = mapper.readTree(text);
+                if (!node.isObject()) {
+                    return new RawRow(line, null, "expected a JSON object");
+                }
+                Map<String, String> fields = new HashMap<>();
+                node.fields().forEachRemaining(field -> {
+                    JsonNode value = field.getValue();
+                    if (!value.isNull()) {
+                        fields.put(fieldKey(field.getKey()), value.isValueNode() ? value.asText() : value.toString());
+                    }
+                });
+                return new RawRow(line, fields, null);
+            } catch (JsonProcessingException e) {
+                return new RawRow(line, null, "invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    // RFC 4180 CSV: comma separated, optional double quotes, "" escapes a quote, quoted fields may span lines
+    private static final class CsvRows implements Iterator<RawRow> {
+        private final Reader reader;
+        private final String[] header;
+        private long record = 1;
+        private List<String> next;
+        private boolean eof;
+        private String malformed;
+
+        private CsvRows(Reader reader) {
+            this.reader = reader;
+            List<String> columns = read();
+            if (columns == null) {
+                throw new IllegalArgumentException("CSV import is empty, expected a header row");
+            }
+            header = new String[columns.size()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = fieldKey(columns.get(i));
+            }
+            boolean hasName = false;
+            for (String column : header) {
+                hasName |= column.equals("name");
+            }
+            if (!hasName) {
+                throw new IllegalArgumentException("CSV header must include a name column");
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !eof) {
+                next = read();
+                if (next != null && next.size() == 1 && next.get(0).isEmpty() && malformed == null) {
+                    record++; // blank line
+                    next = null;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public RawRow next() {
+            hasNext();
+            List<String> values = next;
+            next = null;
+            long number = ++record;
+            if (malformed != null) {
+                String error = malformed;
+                malformed = null;
+                return new RawRow(number, null, error);
+            }
+            if (values.size() != header.length) {
+                return new RawRow(number, null, "expected " + header.length + " columns but found " + values.size());
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                fields.put(header[i], values.get(i));
+            }
+            return new RawRow(number, fields, null);
+        }
+
+        // Next record's fields, or null at end of input
+        private List<String> read() {
+            try {
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                boolean quoted = false;
+                boolean any = false;
+                int c;
+                while ((c = reader.read()) != -1) {
+                    any = true;
+                    if (quoted) {
+                        if (c == '"') {
+                            reader.mark(1);
+                            int peek = reader.read();
+                            if (peek == '"') {
+                                field.append('"');
+                            } else {
+                                quoted = false;
+                                if (peek != -1) {
+                                    reader.reset();
+                                }
+                            }
+                        } else {
+                            field.append((char) c);
+                        }
+                    } else if (c == '"' && field.length() == 0) {
+                        quoted = true;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '\n') {
+                        break;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+                }
+                if (c == -1) {
+                    eof = true;
+                    if (!any) {
+                        return null;
+                    }
+                    if (quoted) {
+                        malformed = "unterminated quoted field";
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read import stream", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.ecomm.app.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.ecomm.app.dtos.ProductDetail;
+
+/**
+ * In-memory trigram index over product name, category and description.
+ *
+ * Each product gets a dense int doc id. Every trigram of its normalized text maps to a sorted
+ * int[] posting list of doc ids, and the trigram dictionary itself is an open-addressing table
+ * keyed by the trigram packed into a long, so nothing on the lookup path is boxed.
+ * A query intersects the posting lists of its trigrams (smallest first) and then confirms each
+ * candidate with a substring check, which removes the false positives a trigram match allows.
+ *
+ * ProductService keeps it current on create/update/delete and rebuilds it from the DB on startup.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final char FIELD_SEPARATOR = '\n';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final GramTable grams = new GramTable();
+    private final Map<Long, Integer> docByProduct = new HashMap<>();
+
+    // Per-doc state, indexed by doc id
+    private ProductDetail[] products = new ProductDetail[64];
+    private String[] texts = new String[64];
+    private long[][] docGrams = new long[64][];
+
+    private int docCount;
+    private int[] freeDocs = new int[16];
+    private int freeCount;
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Iterable<ProductDetail> all) {
+        lock.writeLock().lock();
+        try {
+            grams.clear();
+            docByProduct.clear();
+            products = new ProductDetail[64];
+            texts = new String[64];
+            docGrams = new long[64][];
+            docCount = 0;
+            freeCount = 0;
+            for (ProductDetail product : all) {
+                addLocked(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds the product, or re-indexes it if it is already present
+    public void put(ProductDetail product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByProduct.get(product.getId());
+            if (doc != null) {
+                unindex(doc);
+                index(doc, product);
+            } else {
+                addLocked(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByProduct.remove(productId);
+            if (doc == null) {
+                return;
+            }
+            unindex(doc);
+            products[doc] = null;
+            texts[doc] = null;
+            if (freeCount == freeDocs.length) {
+                freeDocs = Arrays.copyOf(freeDocs, freeCount * 2);
+            }
+            freeDocs[freeCount++] = doc;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Products whose name, category or description contain the query (case-insensitive),
+     * optionally restricted to one category. Results are ordered by product id.
+     */
+    public List<ProductDetail> search(String query, String category) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return List.of();
+        }
+        String categoryFilter = category == null || category.isBlank() ? null : category.trim();
+
+        lock.readLock().lock();
+        try {
+            List<ProductDetail> matches = new ArrayList<>();
+            if (q.length() < 3) {
+                // Too short for a trigram, scan the in-memory texts instead
+                for (int doc = 0; doc < docCount; doc++) {
+                    collect(doc, q, categoryFilter, matches);
+                }
+            } else {
+                for (int doc : candidates(q)) {
+                    collect(doc, q, categoryFilter, matches);
+                }
+            }
+            matches.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int doc, String q, String categoryFilter, List<ProductDetail> out) {
+        ProductDetail product = products[doc];
+        if (product == null || !texts[doc].contains(q)) {
+            return;
+        }
+        if (categoryFilter != null && !categoryFilter.equalsIgnoreCase(product.getCategory())) {
+            return;
+        }
+        out.add(product);
+    }
+
+    // Intersection of the posting lists of every trigram in the query
+    private int[] candidates(String q) {
+        long[] queryGrams = gramsOf(q);
+        PostingList[] lists = new PostingList[queryGrams.length];
+        for (int i = 0; i < queryGrams.length; i++) {
+            PostingList list = grams.get(queryGrams[i]);
+            if (list == null || list.size == 0) {
+                return new int[0];
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        PostingList smallest = lists[0];
+        int[] result = new int[smallest.size];
+        int n = 0;
+        outer:
+        for (int i = 0; i < smallest.size; i++) {
+            int doc = smallest.docs[i];
+            for (int j = 1; j < lists.length; j++) {
+                if (!lists[j].contains(doc)) {
+                    continue outer;
+                }
+            }
+            result[n++] = doc;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private void addLocked(ProductDetail product) {
+        int doc;
+        if (freeCount > 0) {
+            doc = freeDocs[--freeCount];
+        } else {
+            doc = docCount++;
+            if (doc == products.length) {
+                int capacity = products.length * 2;
+                products = Arrays.copyOf(products, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+                docGrams = Arrays.copyOf(docGrams, capacity);
+            }
+        }
+        docByProduct.put(product.getId(), doc);
+        index(doc, product);
+    }
+
+    private void index(int doc, ProductDetail product) {
+        String text = normalize(product.getName()) + FIELD_SEPARATOR
+                + normalize(product.getCategory()) + FIELD_SEPARATOR
+                + normalize(product.getDescription());
+        long[] productGrams = gramsOf(text);
+        for (long gram : productGrams) {
+            grams.getOrCreate(gram).add(doc);
+        }
+        products[doc] = product;
+        texts[doc] = text;
+        docGrams[doc] = productGrams;
+    }
+
+    private void unindex(int doc) {
+        long[] productGrams = docGrams[doc];
+        if (productGrams == null) {
+            return;
+        }
+        for (long gram : productGrams) {
+            PostingList list = grams.get(gram);
+            if (list != null) {
+                list.remove(doc);
+            }
+        }
+        docGrams[doc] = null;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    // Distinct trigrams of the text, each packed as three 16-bit chars
+    private static long[] gramsOf(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] out = new long[text.length() - 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(out);
+        int n = 0;
+        for (int i = 0; i < out.length; i++) {
+            if (n == 0 || out[n - 1] != out[i]) {
+                out[n++] = out[i];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // Sorted, growable int[] of doc ids
+    private static final class PostingList {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+            docs[pos] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+            size--;
+        }
+
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+    }
+
+    // Open-addressing (linear probing) map from packed trigram to posting list
+    private static final class GramTable {
+        private static final long EMPTY = -1L; // a packed trigram is never negative
+
+        private long[] keys;
+        private PostingList[] values;
+        private int size;
+
+        GramTable() {
+            clear();
+        }
+
+        void clear() {
+            keys = new long[1024];
+            Arrays.fill(keys, EMPTY);
+            values = new PostingList[1024];
+            size = 0;
+        }
+
+        PostingList get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == EMPTY) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+        }
+
+        PostingList getOrCreate(long key) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = new PostingList();
+            size++;
+            return values[i];
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            PostingList[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            values = new PostingList[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = slot(oldKeys[j], mask);
+                    while (keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
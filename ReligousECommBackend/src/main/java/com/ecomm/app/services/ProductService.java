@@ -4,56 +4,221 @@ package com.ecomm.app.services;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 
+import com.ecomm.app.dtos.CacheStats;
+import com.ecomm.app.dtos.CursorPage;
+import com.ecomm.app.dtos.ProductCard;
+import com.ecomm.app.dtos.ProductDetail;
+import com.ecomm.app.dtos.ProductFacets;
+import com.ecomm.app.enums.ProductSort;
 import com.ecomm.app.models.Product;
 import com.ecomm.app.repo.ProductRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service // Marks this class as a Spring service component
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired // Injects ProductRepository instance
     private ProductRepository productRepository;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestionIndex suggestionIndex;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private FeaturedProductService featuredProductService;
+
+    // Load the in-memory search, suggestion and facet indexes once the app is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndexes() {
+        List<ProductDetail> all = productRepository.findAllProjectedBy();
+        searchIndex.rebuild(all);
+        suggestionIndex.rebuild(all);
+        facetIndex.rebuild(all);
+    }
+
     // Get all products
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public List<ProductDetail> getAllProducts() {
+        return catalogCache.get(CatalogCache.ALL_KEY, () -> List.copyOf(productRepository.findAllProjectedBy()));
+    }
+
+    // Precomputed by FeaturedProductService; this is just a read of its current snapshot
+    public List<ProductCard> getFeaturedProducts() {
+        return featuredProductService.current().getItems();
+    }
+
+    // Keyset page over the featured snapshot only
+    public CursorPage<ProductCard> getFeaturedPage(String sort, String direction, int limit, String after) {
+        return pageOfCards(featuredProductService.current().getItems(), sort, direction, limit, after);
     }
 
     
     
-    public List<Product> findProducts(String name, String category) {
+    public List<ProductDetail> findProducts(String name, String category) {
         boolean hasName = name != null && !name.trim().isEmpty();
         boolean hasCategory = category != null && !category.trim().isEmpty();
 
-        if (hasName && hasCategory) {
-            return productRepository.findByNameContainingIgnoreCaseAndCategoryIgnoreCase(name, category);
+        if (hasName && searchIndex.isReady()) {
+            return searchIndex.search(name, hasCategory ? category : null);
+        } else if (hasName && hasCategory) {
+            return productRepository.findProjectedByNameContainingIgnoreCaseAndCategoryIgnoreCase(name, category);
         } else if (hasName) {
-            return productRepository.findByNameContainingIgnoreCase(name);
+            return productRepository.findProjectedByNameContainingIgnoreCase(name);
         } else if (hasCategory) {
-            return productRepository.findByCategoryIgnoreCase(category);
+            return catalogCache.get(CatalogCache.categoryKey(category),
+                    () -> List.copyOf(productRepository.findProjectedByCategoryIgnoreCase(category)));
         } else {
             // If no filters are provided, return all products
-            return productRepository.findAll();
+            return getAllProducts();
         }
     }
+    // Keyset-paged version of findProducts
+    public CursorPage<ProductCard> findProductPage(String name, String category,
+                                               String sort, String direction, int limit, String after) {
+        boolean hasName = name != null && !name.trim().isEmpty();
+        boolean hasCategory = category != null && !category.trim().isEmpty();
+
+        if (hasName && searchIndex.isReady()) {
+            return pageOf(searchIndex.search(name, hasCategory ? category : null), sort, direction, limit, after);
+        }
+        return page(sort, direction, limit, after, (position, order, max) -> {
+            if (hasName && hasCategory) {
+                return productRepository.findByNameContainingIgnoreCaseAndCategoryIgnoreCase(name, category, position, order, max);
+            } else if (hasName) {
+                return productRepository.findByNameContainingIgnoreCase(name, position, order, max);
+            } else if (hasCategory) {
+                return productRepository.findByCategoryIgnoreCase(category, position, order, max);
+            }
+            return productRepository.findAllBy(position, order, max);
+        });
+    }
+
+    public CursorPage<ProductCard> getCategoryPage(String category,
+                                               String sort, String direction, int limit, String after) {
+        return page(sort, direction, limit, after,
+                (position, order, max) -> productRepository.findByCategory(category, position, order, max));
+    }
+
+    public CursorPage<ProductCard> searchProductPage(String query,
+                                                 String sort, String direction, int limit, String after) {
+        if (searchIndex.isReady()) {
+            return pageOf(searchIndex.search(query, null), sort, direction, limit, after);
+        }
+        return page(sort, direction, limit, after,
+                (position, order, max) -> productRepository.findByNameContainingIgnoreCase(query, position, order, max));
+    }
+
+    private CursorPage<ProductCard> page(String sort, String direction, int limit, String after, WindowQuery query) {
+        ProductSort productSort = ProductSort.from(sort);
+        Sort.Direction dir = Sort.Direction.fromOptionalString(direction).orElse(Sort.Direction.ASC);
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // id is always the tie-breaker so the (sortKey, id) ordering is total
+        Sort order = productSort == ProductSort.ID
+                ? Sort.by(dir, "id")
+                : Sort.by(dir, productSort.getProperty()).and(Sort.by(dir, "id"));
+        ScrollPosition position = ProductCursor.decode(after, productSort, dir);
+
+        Window<ProductCard> window = query.fetch(position, order, Limit.of(size));
+        List<ProductCard> items = window.getContent();
+        String next = window.hasNext() && !items.isEmpty()
+                ? ProductCursor.encode(productSort, dir, items.get(items.size() - 1))
+                : null;
+        return new CursorPage<>(items, next, next != null);
+    }
+
+    // Keyset page over an in-memory result set (e.g. search hits), same cursor format as page()
+    private CursorPage<ProductCard> pageOf(List<ProductDetail> matches, String sort, String direction, int limit, String after) {
+        List<ProductCard> cards = new ArrayList<>(matches.size());
+        for (ProductDetail match : matches) {
+            cards.add(match.toCard());
+        }
+        return pageOfCards(cards, sort, direction, limit, after);
+    }
+
+    private CursorPage<ProductCard> pageOfCards(List<ProductCard> cards, String sort, String direction, int limit, String after) {
+        ProductSort productSort = ProductSort.from(sort);
+        Sort.Direction dir = Sort.Direction.fromOptionalString(direction).orElse(Sort.Direction.ASC);
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        Comparator<ProductCard> order = dir.isAscending() ? productSort.comparator() : productSort.comparator().reversed();
+        KeysetScrollPosition position = ProductCursor.decode(after, productSort, dir);
+        ProductCard last = position.isInitial() ? null : cursorProbe(position.getKeys());
+
+        List<ProductCard> sorted = new ArrayList<>(cards);
+        sorted.sort(order);
+        List<ProductCard> items = new ArrayList<>(size);
+        boolean hasMore = false;
+        for (ProductCard product : sorted) {
+            if (last != null && order.compare(product, last) <= 0) {
+                continue;
+            }
+            if (items.size() == size) {
+                hasMore = true;
+                break;
+            }
+            items.add(product);
+        }
+        String next = hasMore ? ProductCursor.encode(productSort, dir, items.get(items.size() - 1)) : null;
+        return new CursorPage<>(items, next, hasMore);
+    }
+
+    // A stand-in card carrying only the cursor's keys, to compare against
+    private static ProductCard cursorProbe(Map<String, Object> keys) {
+        Object price = keys.getOrDefault("price", 0d);
+        Object rating = keys.getOrDefault("rating", 0d);
+        return new ProductCard((Long) keys.get("id"), (String) keys.get("name"), null,
+                (Double) price, 0, 0, null, (Double) rating);
+    }
+
+    @FunctionalInterface
+    private interface WindowQuery {
+        Window<ProductCard> fetch(ScrollPosition position, Sort sort, Limit limit);
+    }
+
     // Get product by ID
-    public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+    public Optional<ProductDetail> getProductById(Long id) {
+        return catalogCache.get(CatalogCache.productKey(id), () -> productRepository.findDetailById(id));
     }
 
     // Create a new product
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        // A lookup of this id before it existed may have cached an empty result
+        onProductSaved(saved, null);
+        return saved;
     }
 
     // Update an existing product
     public Product updateProduct(Long id, Product productDetails) {
         return productRepository.findById(id)
                 .map(product -> {
+                    String oldCategory = product.getCategory();
                     product.setName(productDetails.getName());
                     product.setCategory(productDetails.getCategory());
                     product.setPrice(productDetails.getPrice());
@@ -61,26 +226,135 @@ public class ProductService {
                     product.setRating(productDetails.getRating());
                     product.setImageUrl(productDetails.getImageUrl());
                     product.setDescription(productDetails.getDescription());
-                    return productRepository.save(product);
+                    Product saved = productRepository.save(product);
+                    onProductSaved(saved, oldCategory);
+                    return saved;
                 }).orElse(null); // Or throw an exception
     }
 
     // Delete a product
     public boolean deleteProduct(Long id) {
-        if (productRepository.existsById(id)) {
+        Optional<Product> existing = productRepository.findById(id);
+        if (existing.isPresent()) {
             productRepository.deleteById(id);
+            onProductDeleted(existing.get());
             return true;
         }
         return false; // Product not found
     }
 
+    // Keeps the cache and in-memory indexes in step with a product write
+    private void onProductSaved(Product saved, String previousCategory) {
+        ProductDetail detail = ProductDetail.from(saved);
+        searchIndex.put(detail);
+        suggestionIndex.put(detail);
+        facetIndex.put(detail);
+        featuredProductService.onProductSaved(detail);
+        catalogCache.invalidateProduct(saved.getId());
+        catalogCache.invalidateCategory(previousCategory);
+        catalogCache.invalidateCategory(saved.getCategory());
+        catalogCache.invalidateListings();
+    }
+
+    /**
+     * Products that sold out or came back in stock outside this service (checkout, cancellation):
+     * re-index the committed rows and drop their pages. Other stock changes are left alone, so a sale
+     * doesn't empty the listing cache or change the catalog ETag; stock counts shown in cached pages
+     * catch up when those expire. Suggestions only depend on name and rating and are not touched.
+     */
+    public void onAvailabilityChanged(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        for (ProductDetail detail : productRepository.findProjectedByIdIn(productIds)) {
+            searchIndex.put(detail);
+            facetIndex.put(detail);
+            featuredProductService.onProductSaved(detail);
+            catalogCache.invalidateProduct(detail.getId());
+            catalogCache.invalidateCategory(detail.getCategory());
+        }
+        catalogCache.invalidateListings();
+    }
+
+    private void onProductDeleted(Product removed) {
+        searchIndex.remove(removed.getId());
+        suggestionIndex.remove(removed.getId());
+        facetIndex.remove(removed.getId());
+        featuredProductService.onProductDeleted(removed.getId());
+        catalogCache.invalidateProduct(removed.getId());
+        catalogCache.invalidateCategory(removed.getCategory());
+        catalogCache.invalidateListings();
+    }
+
+    // After a bulk write outside JPA: drop every cached listing and reload the indexes from the DB
+    public void reloadCatalog() {
+        catalogCache.invalidateAll();
+        rebuildIndexes();
+    }
+
     // Search products by name (example of custom service method)
-    public List<Product> searchProducts(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+    public List<ProductCard> searchProducts(String name) {
+        List<ProductDetail> matches = searchIndex.isReady()
+                ? searchIndex.search(name, null)
+                : productRepository.findProjectedByNameContainingIgnoreCase(name);
+        return matches.stream().map(ProductDetail::toCard).toList();
     }
     
-    public List<Product> getByCategory(String catergory){
-    	return productRepository.findByCategory(catergory);
+    // Autocomplete names for the search box
+    public List<String> getSuggestions(String query, int limit) {
+        int size = Math.max(0, Math.min(limit, suggestionIndex.getTopK()));
+        if (suggestionIndex.isReady()) {
+            return suggestionIndex.suggest(query, size);
+        }
+        return productRepository.findProjectedByNameContainingIgnoreCase(query).stream()
+                .map(ProductDetail::getName)
+                .limit(size)
+                .toList();
+    }
+
+    // Category counts, price range and rating histogram, optionally over the products matching a name
+    public ProductFacets getFacets(String name) {
+        if (name != null && !name.trim().isEmpty()) {
+            return ProductFacetIndex.facetsOf(findProducts(name, null));
+        }
+        if (facetIndex.isReady()) {
+            return facetIndex.facets();
+        }
+        return ProductFacetIndex.facetsOf(getAllProducts());
+    }
+
+    public List<ProductDetail> getByCategory(String catergory){
+    	return catalogCache.get(CatalogCache.exactCategoryKey(catergory),
+    			() -> List.copyOf(productRepository.findProjectedByCategory(catergory)));
     	
     }
+
+    public CacheStats getCacheStats() {
+        return catalogCache.stats();
+    }
+
+    // HTTP validators, answered from version counters without touching the DB
+    public String getCatalogETag() {
+        return catalogCache.catalogETag();
+    }
+
+    public long getCatalogLastModified() {
+        return catalogCache.getLastModified();
+    }
+
+    public String getFeaturedETag() {
+        return featuredProductService.current().getETag();
+    }
+
+    public long getFeaturedLastModified() {
+        return featuredProductService.current().getRefreshedAt();
+    }
+
+    public String getProductETag(Long id) {
+        return catalogCache.productETag(id);
+    }
+
+    public long getProductLastModified(Long id) {
+        return catalogCache.getProductLastModified(id);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,324 @@
+package com.ecomm.app.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ecomm.app.dtos.ProductDetail;
+
+/**
+ * Autocomplete over product names, backed by a ternary search tree.
+ *
+ * Every node that completes a prefix keeps the top-k products (by rating) found below it, so a
+ * lookup is a walk down the prefix plus a copy of at most k names. Names are indexed from every
+ * word start ("lord ganesha idol" is also reachable as "ganesha idol" and "idol").
+ */
+@Component
+public class ProductSuggestionIndex {
+
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final int topK;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root;
+    private final Map<Long, List<String>> keysByProduct = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public ProductSuggestionIndex(@Value("${catalog.suggestions.top-k:10}") int topK) {
+        this.topK = topK;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void rebuild(Iterable<ProductDetail> all) {
+        lock.writeLock().lock();
+        try {
+            root = null;
+            keysByProduct.clear();
+            for (ProductDetail product : all) {
+                addLocked(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds the product, or replaces its entry if the name or rating changed
+    public void put(ProductDetail product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Up to limit distinct names starting with the prefix (at any word), best rated first
+    public List<String> suggest(String prefix, int limit) {
+        String key = ProductSearchIndex.normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return List.of();
+            }
+            Set<String> names = new LinkedHashSet<>();
+            for (Entry entry : node.top) {
+                if (names.size() == limit) {
+                    break;
+                }
+                names.add(entry.name);
+            }
+            return new ArrayList<>(names);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(ProductDetail product) {
+        String name = product.getName();
+        String normalized = ProductSearchIndex.normalize(name);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(product.getId(), name, product.getRating());
+        List<String> keys = keysOf(normalized);
+        for (String key : keys) {
+            List<Node> path = insertPath(key);
+            path.get(path.size() - 1).terminals.add(entry);
+            for (Node node : path) {
+                offer(node, entry);
+            }
+        }
+        keysByProduct.put(product.getId(), keys);
+    }
+
+    private void removeLocked(Long productId) {
+        List<String> keys = keysByProduct.remove(productId);
+        if (keys == null) {
+            return;
+        }
+        List<List<Node>> paths = new ArrayList<>();
+        for (String key : keys) {
+            List<Node> path = findPath(key);
+            if (path != null) {
+                path.get(path.size() - 1).terminals.removeIf(e -> e.productId == productId);
+                paths.add(path);
+            }
+        }
+        // Deepest first, so every parent is rebuilt from already corrected children
+        for (List<Node> path : paths) {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node node = path.get(i);
+                if (node.holds(productId)) {
+                    recompute(node);
+                }
+            }
+        }
+    }
+
+    // Suffixes of the name starting at each word
+    private static List<String> keysOf(String normalized) {
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        while (start < normalized.length()) {
+            String key = normalized.substring(start, Math.min(normalized.length(), start + MAX_KEY_LENGTH));
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+            int space = normalized.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+        return keys;
+    }
+
+    // Nodes on which each character of the key matched, creating any that are missing
+    private List<Node> insertPath(String key) {
+        List<Node> path = new ArrayList<>(key.length());
+        if (root == null) {
+            root = new Node(key.charAt(0));
+        }
+        Node node = root;
+        int i = 0;
+        while (true) {
+            char c = key.charAt(i);
+            if (c < node.c) {
+                if (node.lo == null) node.lo = new Node(c);
+                node = node.lo;
+            } else if (c > node.c) {
+                if (node.hi == null) node.hi = new Node(c);
+                node = node.hi;
+            } else {
+                path.add(node);
+                if (++i == key.length()) {
+                    return path;
+                }
+                if (node.eq == null) node.eq = new Node(key.charAt(i));
+                node = node.eq;
+            }
+        }
+    }
+
+    private List<Node> findPath(String key) {
+        List<Node> path = new ArrayList<>(key.length());
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            char c = key.charAt(i);
+            if (c < node.c) {
+                node = node.lo;
+            } else if (c > node.c) {
+                node = node.hi;
+            } else {
+                path.add(node);
+                if (++i == key.length()) {
+                    return path;
+                }
+                node = node.eq;
+            }
+        }
+        return null;
+    }
+
+    private Node find(String key) {
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            char c = key.charAt(i);
+            if (c < node.c) {
+                node = node.lo;
+            } else if (c > node.c) {
+                node = node.hi;
+            } else if (++i == key.length()) {
+                return node;
+            } else {
+                node = node.eq;
+            }
+        }
+        return null;
+    }
+
+    private void offer(Node node, Entry entry) {
+        if (node.holds(entry.productId)) {
+            return;
+        }
+        Entry[] top = node.top;
+        int pos = 0;
+        while (pos < top.length && !entry.ranksBefore(top[pos])) {
+            pos++;
+        }
+        if (pos >= topK) {
+            return;
+        }
+        int length = Math.min(top.length + 1, topK);
+        Entry[] merged = new Entry[length];
+        System.arraycopy(top, 0, merged, 0, pos);
+        merged[pos] = entry;
+        System.arraycopy(top, pos, merged, pos + 1, length - pos - 1);
+        node.top = merged;
+    }
+
+    // Top-k of this node = its own terminals plus the top-k of each completion below it
+    private void recompute(Node node) {
+        Map<Long, Entry> candidates = new HashMap<>();
+        for (Entry entry : node.terminals) {
+            candidates.put(entry.productId, entry);
+        }
+        collectSiblings(node.eq, candidates);
+        Entry[] all = candidates.values().toArray(new Entry[0]);
+        Arrays.sort(all, (a, b) -> a.ranksBefore(b) ? -1 : b.ranksBefore(a) ? 1 : 0);
+        node.top = Arrays.copyOf(all, Math.min(all.length, topK));
+    }
+
+    // The lo/hi links of a level form a small BST of sibling characters
+    private static void collectSiblings(Node node, Map<Long, Entry> out) {
+        if (node == null) {
+            return;
+        }
+        for (Entry entry : node.top) {
+            out.putIfAbsent(entry.productId, entry);
+        }
+        collectSiblings(node.lo, out);
+        collectSiblings(node.hi, out);
+    }
+
+    private static final class Node {
+        private final char c;
+        private Node lo, eq, hi;
+        private Entry[] top = new Entry[0];
+        private final List<Entry> terminals = new ArrayList<>(1);
+
+        private Node(char c) {
+            this.c = c;
+        }
+
+        private boolean holds(long productId) {
+            for (Entry entry : top) {
+                if (entry.productId == productId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        private final long productId;
+        private final String name;
+        private final double score;
+
+        private Entry(long productId, String name, double score) {
+            this.productId = productId;
+            this.name = name;
+            this.score = score;
+        }
+
+        // Higher rating first, then alphabetical, then id for a stable order
+        private boolean ranksBefore(Entry other) {
+            if (score != other.score) {
+                return score > other.score;
+            }
+            int byName = name.compareToIgnoreCase(other.name);
+            if (byName != 0) {
+                return byName < 0;
+            }
+            return productId < other.productId;
+        }
+    }
+}
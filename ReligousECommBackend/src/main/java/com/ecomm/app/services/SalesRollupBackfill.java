@@ -0,0 +1,133 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.ecomm.app.dtos.RollupBackfillStatus;
+import com.ecomm.app.repo.OrderRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Feeds orders placed before the rollups existed (or missed by them) into SalesRollupService.
+ *
+ * Walks the orders table by primary key in chunks of analytics.backfill.batch-size, each applied in
+ * its own transaction, with analytics.backfill.pause-ms between chunks so live checkouts are not
+ * starved of locks. apply() is idempotent, so the backfill can run while orders keep coming in and can
+ * simply be started again after a failure. A chunk that fails is retried a few times before the run
+ * stops.
+ */
+@Service
+public class SalesRollupBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupBackfill.class);
+    private static final int CHUNK_ATTEMPTS = 3;
+
+    private final OrderRepository orderRepository;
+    private final SalesRollupService rollupService;
+    private final int batchSize;
+    private final long pauseMs;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rollup-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean running;
+    private volatile long processed;
+    private volatile String lastOrderId;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public SalesRollupBackfill(OrderRepository orderRepository, SalesRollupService rollupService,
+                               @Value("${analytics.backfill.batch-size:500}") int batchSize,
+                               @Value("${analytics.backfill.pause-ms:100}") long pauseMs) {
+        this.orderRepository = orderRepository;
+        this.rollupService = rollupService;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    // Starts a run in the background; false if one is already running
+    public synchronized boolean start() {
+        if (running) {
+            return false;
+        }
+        running = true;
+        processed = 0;
+        lastOrderId = null;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        error = null;
+        runner.submit(this::run);
+        return true;
+    }
+
+    public synchronized RollupBackfillStatus status() {
+        return new RollupBackfillStatus(running, processed, lastOrderId, startedAt, finishedAt, error);
+    }
+
+    private void run() {
+        try {
+            String after = "";
+            while (!Thread.currentThread().isInterrupted()) {
+                List<String> ids = orderRepository.findIdsAfter(after, Limit.of(batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                applyChunk(ids);
+                after = ids.get(ids.size() - 1);
+                processed += ids.size();
+                lastOrderId = after;
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+            logger.info("Sales rollup backfill went through {} order(s)", processed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted";
+        } catch (RuntimeException e) {
+            logger.error("Sales rollup backfill stopped after {} order(s)", processed, e);
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } finally {
+            synchronized (this) {
+                running = false;
+                finishedAt = LocalDateTime.now();
+            }
+        }
+    }
+
+    private void applyChunk(List<String> ids) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                rollupService.apply(ids);
+                return;
+            } catch (RuntimeException e) {
+                // Typically a lock timeout or a bucket row created concurrently; the retry is exact
+                if (attempt >= CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(pauseMs * attempt);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        runner.shutdownNow();
+        runner.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,236 @@
+package com.ecomm.app.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ecomm.app.dtos.OrderItemLine;
+import com.ecomm.app.dtos.OrderRollupSource;
+import com.ecomm.app.dtos.SalesPoint;
+import com.ecomm.app.enums.RollupGranularity;
+import com.ecomm.app.models.SalesRollup;
+import com.ecomm.app.models.SalesRollupOrder;
+import com.ecomm.app.repo.OrderRepository;
+import com.ecomm.app.repo.SalesRollupOrderRepository;
+import com.ecomm.app.repo.SalesRollupRepository;
+
+/**
+ * Hourly and daily sales (orders, units, revenue) per category and in total, kept in sales_rollups so
+ * dashboards read one row per bucket instead of grouping orders.
+ *
+ * The rollups only change by deltas. apply() compares each order's current status with its
+ * sales_rollup_orders marker and adds or removes the order's share when the two disagree, so it can
+ * be called any number of times for the same order (outbox redeliveries, backfill overlapping live
+ * traffic) and still count every order once. The orders are locked for the duration, and bucket rows
+ * are updated in key order, so concurrent calls neither double count nor deadlock.
+ */
+@Service
+public class SalesRollupService {
+
+    public static final String UNCATEGORIZED = "Uncategorized";
+    private static final int MAX_CATEGORY_LENGTH = 100;
+    private static final int MAX_HOURLY_DAYS = 31;
+    private static final int MAX_DAILY_DAYS = 3660;
+
+    private final OrderRepository orderRepository;
+    private final SalesRollupRepository rollupRepository;
+    private final SalesRollupOrderRepository markerRepository;
+
+    @Value("${spring.jpa.properties.hibernate.dialect:}")
+    private String dialect;
+
+    public SalesRollupService(OrderRepository orderRepository, SalesRollupRepository rollupRepository,
+                              SalesRollupOrderRepository markerRepository) {
+        this.orderRepository = orderRepository;
+        this.rollupRepository = rollupRepository;
+        this.markerRepository = markerRepository;
+    }
+
+    // Brings the rollups in line with the current status of these orders; returns how many changed
+    @Transactional
+    public int apply(Collection<String> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        List<OrderRollupSource> orders = orderRepository.lockRollupSources(new HashSet<>(orderIds));
+        Map<String, SalesRollupOrder> markers = new HashMap<>();
+        for (SalesRollupOrder marker : markerRepository.findAllById(orderIds)) {
+            markers.put(marker.getOrderId(), marker);
+        }
+
+        // Orders whose share has to be added (+1) or removed (-1)
+        Map<String, Integer> signs = new HashMap<>();
+        Map<String, OrderRollupSource> byId = new HashMap<>();
+        List<SalesRollupOrder> changedMarkers = new ArrayList<>();
+        for (OrderRollupSource order : orders) {
+            SalesRollupOrder marker = markers.get(order.getId());
+            boolean counted = marker != null && marker.isCounted();
+            boolean sale = order.getStatus() != null && order.getStatus().isSale();
+            if (counted == sale || order.getOrderDate() == null) {
+                continue;
+            }
+            if (marker == null) {
+                marker = new SalesRollupOrder(order.getId());
+            }
+            marker.setCounted(sale);
+            changedMarkers.add(marker);
+            signs.put(order.getId(), sale ? 1 : -1);
+            byId.put(order.getId(), order);
+        }
+        if (signs.isEmpty()) {
+            return 0;
+        }
+
+        // Sum the deltas per bucket first; a TreeMap also gives the key order the updates run in
+        Map<BucketKey, long[]> deltas = new TreeMap<>();
+        Map<String, Set<String>> categoriesByOrder = new HashMap<>();
+        for (OrderItemLine line : orderRepository.findItemLines(signs.keySet())) {
+            int sign = signs.get(line.getOrderId());
+            String category = category(line.getCategory());
+            long units = (long) sign * line.getQuantity();
+            long cents = sign * Math.round(line.getPrice() * 100) * line.getQuantity();
+            boolean firstLineInCategory = categoriesByOrder
+                    .computeIfAbsent(line.getOrderId(), id -> new HashSet<>()).add(category);
+            LocalDateTime orderDate = byId.get(line.getOrderId()).getOrderDate();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                LocalDateTime bucket = granularity.bucketOf(orderDate);
+                add(deltas, new BucketKey(granularity, bucket, category), firstLineInCategory ? sign : 0, units, cents);
+                add(deltas, new BucketKey(granularity, bucket, SalesRollup.ALL), 0, units, cents);
+            }
+        }
+        // Every order counts once in the totals, even one without lines
+        for (Map.Entry<String, Integer> entry : signs.entrySet()) {
+            LocalDateTime orderDate = byId.get(entry.getKey()).getOrderDate();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                add(deltas, new BucketKey(granularity, granularity.bucketOf(orderDate), SalesRollup.ALL),
+                        entry.getValue(), 0, 0);
+            }
+        }
+
+        for (Map.Entry<BucketKey, long[]> entry : deltas.entrySet()) {
+            long[] delta = entry.getValue();
+            if (delta[0] != 0 || delta[1] != 0 || delta[2] != 0) {
+                addToBucket(entry.getKey(), delta[0], delta[1], delta[2]);
+            }
+        }
+        markerRepository.saveAll(changedMarkers);
+        return signs.size();
+    }
+
+    private void addToBucket(BucketKey key, long orders, long units, long cents) {
+        String name = dialect.toLowerCase();
+        if (name.contains("postgres")) {
+            rollupRepository.addPostgres(key.granularity.name(), key.bucket, key.category, orders, units, cents);
+        } else if (name.contains("mysql") || name.contains("mariadb")) {
+            rollupRepository.addMySql(key.granularity.name(), key.bucket, key.category, orders, units, cents);
+        } else if (rollupRepository.addToExisting(key.granularity, key.bucket, key.category, orders, units, cents) == 0) {
+            // A concurrent insert of the same bucket fails on the unique key and rolls this call back;
+            // callers retry (outbox, backfill) and the markers make the retry exact
+            SalesRollup row = new SalesRollup();
+            row.setGranularity(key.granularity);
+            row.setBucketStart(key.bucket);
+            row.setCategory(key.category);
+            row.setOrderCount(orders);
+            row.setUnits(units);
+            row.setRevenueCents(cents);
+            rollupRepository.save(row);
+        }
+    }
+
+    /**
+     * Hourly series over [from, to). With byCategory every category's row per hour is returned;
+     * otherwise one series, for the given category or (when null) the totals.
+     */
+    @Transactional(readOnly = true)
+    public List<SalesPoint> hourly(LocalDateTime from, LocalDateTime to, String category, boolean byCategory) {
+        checkRange(from, to, MAX_HOURLY_DAYS);
+        return series(RollupGranularity.HOUR, RollupGranularity.HOUR.bucketOf(from), to, category, byCategory);
+    }
+
+    // Daily series over the days from..to, both inclusive
+    @Transactional(readOnly = true)
+    public List<SalesPoint> daily(LocalDate from, LocalDate to, String category, boolean byCategory) {
+        LocalDateTime start = from != null ? from.atStartOfDay() : null;
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : null;
+        checkRange(start, end, MAX_DAILY_DAYS);
+        return series(RollupGranularity.DAY, start, end, category, byCategory);
+    }
+
+    private List<SalesPoint> series(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                    String category, boolean byCategory) {
+        if (byCategory) {
+            return rollupRepository.findByCategory(granularity, from, to);
+        }
+        String key = category == null || category.isBlank() ? SalesRollup.ALL : category(category);
+        return rollupRepository.findSeries(granularity, key, from, to);
+    }
+
+    private static void checkRange(LocalDateTime from, LocalDateTime to, int maxDays) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (from.plusDays(maxDays).isBefore(to)) {
+            throw new IllegalArgumentException("At most " + maxDays + " days per request");
+        }
+    }
+
+    private static String category(String category) {
+        if (category == null || category.isBlank() || category.trim().equals(SalesRollup.ALL)) {
+            return UNCATEGORIZED;
+        }
+        String trimmed = category.trim();
+        return trimmed.length() > MAX_CATEGORY_LENGTH ? trimmed.substring(0, MAX_CATEGORY_LENGTH) : trimmed;
+    }
+
+    private static void add(Map<BucketKey, long[]> deltas, BucketKey key, long orders, long units, long cents) {
+        long[] delta = deltas.computeIfAbsent(key, k -> new long[3]);
+        delta[0] += orders;
+        delta[1] += units;
+        delta[2] += cents;
+    }
+
+    private static final class BucketKey implements Comparable<BucketKey> {
+        private final RollupGranularity granularity;
+        private final LocalDateTime bucket;
+        private final String category;
+
+        private BucketKey(RollupGranularity granularity, LocalDateTime bucket, String category) {
+            this.granularity = granularity;
+            this.bucket = bucket;
+            this.category = category;
+        }
+
+        @Override
+        public int compareTo(BucketKey other) {
+            int c = granularity.compareTo(other.granularity);
+            if (c == 0) {
+                c = bucket.compareTo(other.bucket);
+            }
+            return c != 0 ? c : category.compareTo(other.category);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BucketKey && compareTo((BucketKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (granularity.hashCode() * 31 + bucket.hashCode()) * 31 + category.hashCode();
+        }
+    }
+}
@@ -0,0 +1,656 @@
+package com.ecomm.app.services;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.CartStoreStats;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind cart store, enabled with cart.store.mode=memory.
+ *
+ * Each user's cart lives in memory once touched; mutations run under one of a fixed set of striped
+ * locks and return as soon as the in-memory cart is updated. Changed lines are remembered per cart
+ * and a scheduled flush writes every dirty cart to cart/cart_item with JDBC batches, so ten clicks
+ * on the same line between flushes become one UPDATE. Flushes are bounded (cart.store.flush-max-carts
+ * per run) and run once more on shutdown.
+ *
+ * If a batch fails, its carts are replayed one per transaction so a single bad cart cannot hold back
+ * the others. A cart that fails on its own is rewritten in full: its row is recreated if it was
+ * deleted underneath the store (reaper, admin wipe), and lines of products that no longer exist are
+ * dropped. A cart that still cannot be written is parked and retried every cart.store.parked-retry-ms.
+ *
+ * A crash loses at most one flush interval of cart changes, and the DB is only the backing copy:
+ * run this mode on a single instance, since another instance would not see unflushed changes.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "memory")
+public class WriteBehindCartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final int STRIPES = 64; // power of two
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cart.store.flush-max-carts:1000}")
+    private int flushMaxCarts;
+
+    @Value("${cart.store.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cart.store.idle-evict-ms:1800000}")
+    private long idleEvictMs;
+
+    @Value("${cart.store.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${cart.store.parked-retry-ms:60000}")
+    private long parkedRetryMs;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Map<Long, MemCart> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> parked = new ConcurrentHashMap<>(); // user id -> next retry time
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong flushedCarts = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private volatile long lastFlushMs;
+    private volatile long lastFlushAt;
+
+    public WriteBehindCartStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Applies the change to the user's cart under its stripe lock, loading the cart from the DB on
+     * first use. If the change throws, the cart is left as it was.
+     */
+    public void mutate(Long userId, Consumer<Lines> change) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            MemCart cart = loadLocked(userId);
+            Lines lines = new Lines(new LinkedHashMap<>(cart.lines));
+            change.accept(lines);
+            for (Long productId : lines.changed) {
+                Integer before = cart.lines.get(productId);
+                Integer after = lines.quantities.get(productId);
+                if (before == null ? after != null : !before.equals(after)) {
+                    cart.changed.add(productId);
+                }
+            }
+            cart.lines.clear();
+            cart.lines.putAll(lines.quantities);
+            cart.touchedAt = System.currentTimeMillis();
+            if (!cart.changed.isEmpty()) {
+                cart.version++;
+                dirty.add(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Current cart id (null if not flushed yet), version and lines in insertion order
+    public Snapshot snapshot(Long userId) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            MemCart cart = loadLocked(userId);
+            cart.touchedAt = System.currentTimeMillis();
+            return new Snapshot(cart.cartId, cart.version, new LinkedHashMap<>(cart.lines));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:1000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushBatch();
+            retryParked(false);
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Drain everything before the context (and the DataSource) goes away
+    @PreDestroy
+    public void flushAll() {
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        flushLock.lock();
+        try {
+            while (!dirty.isEmpty() && System.currentTimeMillis() < deadline) {
+                flushBatch();
+            }
+            retryParked(true);
+        } finally {
+            flushLock.unlock();
+        }
+        if (!dirty.isEmpty() || !parked.isEmpty()) {
+            logger.error("Shutting down with {} cart(s) not flushed", dirty.size() + parked.size());
+        }
+    }
+
+    // Forgets every cart, flushed or not; for when the cart tables were wiped underneath the store
+    public void discardAll() {
+        flushLock.lock();
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+            }
+            try {
+                carts.clear();
+                dirty.clear();
+                parked.clear();
+            } finally {
+                for (ReentrantLock stripe : stripes) {
+                    stripe.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public CartStoreStats stats() {
+        return new CartStoreStats(carts.size(), dirty.size(), parked.size(), flushes.get(), failedFlushes.get(),
+                flushedCarts.get(), flushedRows.get(), droppedLines.get(), lastFlushMs, lastFlushAt);
+    }
+
+    // Ids of the cart rows backing resident carts; the DB copy of these may look idle when they are not
+    public Set<Long> residentCartIds() {
+        Set<Long> ids = new HashSet<>();
+        for (MemCart cart : carts.values()) {
+            Long cartId = cart.cartId;
+            if (cartId != null) {
+                ids.add(cartId);
+            }
+        }
+        return ids;
+    }
+
+    // Writes up to flushMaxCarts dirty carts in one transaction, or one by one if that fails
+    private void flushBatch() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        List<Pending> pending = takeDirty();
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            long rows = transactionTemplate.execute(status -> write(pending));
+            for (Pending p : pending) {
+                if (p.createdCartId != null) {
+                    assignCartId(p.userId, p.createdCartId);
+                }
+            }
+            flushedCarts.addAndGet(pending.size());
+            flushedRows.addAndGet(rows);
+        } catch (RuntimeException e) {
+            // The whole batch rolled back; replay it cart by cart so only the carts the DB refuses are held back
+            failedFlushes.incrementAndGet();
+            logger.warn("Cart flush of {} cart(s) failed, retrying them one by one: {}", pending.size(), e.getMessage());
+            for (Pending p : pending) {
+                p.cartId = p.createdCartId != null ? null : p.cartId;
+                p.createdCartId = null;
+                flushOne(p);
+            }
+        } finally {
+            flushes.incrementAndGet();
+            lastFlushMs = System.currentTimeMillis() - started;
+            lastFlushAt = System.currentTimeMillis();
+        }
+    }
+
+    // Copies the changed lines of each dirty cart and clears its change set
+    private List<Pending> takeDirty() {
+        List<Pending> pending = new ArrayList<>();
+        Iterator<Long> it = dirty.iterator();
+        while (it.hasNext() && pending.size() < flushMaxCarts) {
+            Long userId = it.next();
+            it.remove();
+            ReentrantLock lock = stripe(userId);
+            lock.lock();
+            try {
+                MemCart cart = carts.get(userId);
+                if (cart == null || cart.changed.isEmpty() || parked.containsKey(userId)) {
+                    continue; // a parked cart's changes go out with its next full rewrite
+                }
+                Map<Long, Integer> lines = new HashMap<>();
+                for (Long productId : cart.changed) {
+                    lines.put(productId, cart.lines.get(productId)); // null = delete
+                }
+                cart.changed.clear();
+                pending.add(new Pending(userId, cart.cartId, cart.version, lines));
+            } finally {
+                lock.unlock();
+            }
+        }
+        return pending;
+    }
+
+    private void flushOne(Pending p) {
+        try {
+            long rows = transactionTemplate.execute(status -> write(List.of(p)));
+            if (p.createdCartId != null) {
+                assignCartId(p.userId, p.createdCartId);
+            }
+            flushedCarts.incrementAndGet();
+            flushedRows.addAndGet(rows);
+        } catch (RuntimeException e) {
+            rewrite(p.userId, e);
+        }
+    }
+
+    // Parked carts whose retry is due (all of them on shutdown), each rewritten in full
+    private void retryParked(boolean all) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Long> entry : parked.entrySet()) {
+            if (all || entry.getValue() <= now) {
+                parked.remove(entry.getKey());
+                rewrite(entry.getKey(), null);
+            }
+        }
+    }
+
+    /**
+     * Replaces the cart's DB copy with its in-memory lines in one transaction: recreates the cart row
+     * if it is gone, drops lines of deleted products (from memory too), deletes and re-inserts every
+     * line. Parks the cart if even that fails.
+     */
+    private void rewrite(Long userId, RuntimeException cause) {
+        Rewrite full = takeAll(userId);
+        if (full == null) {
+            return;
+        }
+        try {
+            long rows = transactionTemplate.execute(status -> writeFull(full));
+            ReentrantLock lock = stripe(userId);
+            lock.lock();
+            try {
+                MemCart cart = carts.get(userId);
+                if (cart != null) {
+                    cart.cartId = full.cartId;
+                    for (Long productId : full.missingProducts) {
+                        // Only if nobody re-added it meanwhile; the product is gone either way
+                        if (!cart.changed.contains(productId)) {
+                            cart.lines.remove(productId);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!full.missingProducts.isEmpty()) {
+                droppedLines.addAndGet(full.missingProducts.size());
+                logger.warn("Dropped lines of deleted product(s) {} from the cart of user {}", full.missingProducts, userId);
+            }
+            flushedCarts.incrementAndGet();
+            flushedRows.addAndGet(rows);
+        } catch (RuntimeException e) {
+            ReentrantLock lock = stripe(userId);
+            lock.lock();
+            try {
+                MemCart cart = carts.get(userId);
+                if (cart != null) {
+                    cart.changed.addAll(full.productIds);
+                    dirty.remove(userId);
+                    parked.put(userId, System.currentTimeMillis() + parkedRetryMs);
+                }
+            } finally {
+                lock.unlock();
+            }
+            logger.error("Cart of user {} could not be written, parked for {} ms", userId, parkedRetryMs,
+                    cause != null ? cause : e);
+        }
+    }
+
+    // Every line of the cart (not just the changed ones), clearing its change set
+    private Rewrite takeAll(Long userId) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            MemCart cart = carts.get(userId);
+            if (cart == null) {
+                return null;
+            }
+            Set<Long> productIds = new HashSet<>(cart.changed);
+            productIds.addAll(cart.lines.keySet());
+            cart.changed.clear();
+            return new Rewrite(userId, cart.cartId, cart.version, new LinkedHashMap<>(cart.lines), productIds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long writeFull(Rewrite full) {
+        if (full.cartId == null || jdbcTemplate.queryForList("select id from cart where id = ?", Long.class,
+                full.cartId).isEmpty()) {
+            full.cartId = findOrCreateCart(full.userId);
+        }
+        jdbcTemplate.update("update cart set version = ?, updated_at = ? where id = ? and version < ?",
+                full.version, new Timestamp(System.currentTimeMillis()), full.cartId, full.version);
+        if (!full.lines.isEmpty()) {
+            Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList(
+                    "select id from product where id in (" + placeholders(full.lines.size()) + ")",
+                    Long.class, full.lines.keySet().toArray()));
+            for (Long productId : full.lines.keySet()) {
+                if (!existing.contains(productId)) {
+                    full.missingProducts.add(productId);
+                }
+            }
+        }
+        jdbcTemplate.update("delete from cart_item where cart_id = ?", full.cartId);
+        List<Object[]> inserts = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : full.lines.entrySet()) {
+            if (!full.missingProducts.contains(line.getKey())) {
+                inserts.add(new Object[] { line.getValue(), full.cartId, line.getKey() });
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into cart_item (quantity, cart_id, product_id, version) values (?, ?, ?, 0)",
+                    inserts, batchSize, (ps, row) -> {
+                        ps.setInt(1, (Integer) row[0]);
+                        ps.setLong(2, (Long) row[1]);
+                        ps.setLong(3, (Long) row[2]);
+                    });
+        }
+        return inserts.size();
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+
+    private long write(List<Pending> pending) {
+        for (Pending p : pending) {
+            if (p.cartId == null) {
+                p.cartId = findOrCreateCart(p.userId);
+                p.createdCartId = p.cartId;
+            }
+        }
+        // Carry the in-memory version over, so it keeps increasing after an eviction and reload
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate("update cart set version = ?, updated_at = ? where id = ? and version < ?",
+                pending, batchSize, (ps, p) -> {
+                    ps.setLong(1, p.version);
+                    ps.setTimestamp(2, now);
+                    ps.setLong(3, p.cartId);
+                    ps.setLong(4, p.version);
+                });
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Pending p : pending) {
+            for (Map.Entry<Long, Integer> line : p.lines.entrySet()) {
+                if (line.getValue() == null) {
+                    deletes.add(new Object[] { p.cartId, line.getKey() });
+                } else {
+                    updates.add(new Object[] { line.getValue(), p.cartId, line.getKey() });
+                }
+            }
+        }
+        long rows = 0;
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("delete from cart_item where cart_id = ? and product_id = ?",
+                    deletes, batchSize, (ps, row) -> {
+                        ps.setLong(1, (Long) row[0]);
+                        ps.setLong(2, (Long) row[1]);
+                    });
+            rows += deletes.size();
+        }
+        if (!updates.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(
+                    "update cart_item set quantity = ?, version = version + 1 where cart_id = ? and product_id = ?",
+                    updates, batchSize, (ps, row) -> {
+                        ps.setInt(1, (Integer) row[0]);
+                        ps.setLong(2, (Long) row[1]);
+                        ps.setLong(3, (Long) row[2]);
+                    });
+            // Lines that matched no row are new
+            List<Object[]> inserts = new ArrayList<>();
+            int i = 0;
+            for (int[] chunk : counts) {
+                for (int count : chunk) {
+                    if (count == 0) {
+                        inserts.add(updates.get(i));
+                    }
+                    i++;
+                }
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "insert into cart_item (quantity, cart_id, product_id, version) values (?, ?, ?, 0)",
+                        inserts, batchSize, (ps, row) -> {
+                            ps.setInt(1, (Integer) row[0]);
+                            ps.setLong(2, (Long) row[1]);
+                            ps.setLong(3, (Long) row[2]);
+                        });
+            }
+            rows += updates.size();
+        }
+        return rows;
+    }
+
+    private Long findOrCreateCart(Long userId) {
+        List<Long> existing = jdbcTemplate.queryForList("select id from cart where user_id = ?", Long.class, userId);
+        if (!existing.isEmpty()) {
+            return existing.get(0);
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "insert into cart (user_id, version, updated_at) values (?, 0, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, userId);
+            ps.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            return ps;
+        }, keys);
+        Map<String, Object> generated = keys.getKeys();
+        Object id = generated != null && generated.size() > 1 ? generated.get("id") : keys.getKey();
+        return ((Number) id).longValue();
+    }
+
+    private void assignCartId(Long userId, Long cartId) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            MemCart cart = carts.get(userId);
+            if (cart != null && cart.cartId == null) {
+                cart.cartId = cartId;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops clean carts nobody has touched for a while; they reload from the DB on next use
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictMs;
+        for (Long userId : carts.keySet()) {
+            ReentrantLock lock = stripe(userId);
+            lock.lock();
+            try {
+                MemCart cart = carts.get(userId);
+                if (cart != null && cart.changed.isEmpty() && cart.cartId != null && cart.touchedAt < cutoff
+                        && !parked.containsKey(userId)) {
+                    carts.remove(userId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private MemCart loadLocked(Long userId) {
+        MemCart cart = carts.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        MemCart loaded = new MemCart();
+        jdbcTemplate.query("select c.id, c.version, ci.product_id, ci.quantity from cart c "
+                + "left join cart_item ci on ci.cart_id = c.id where c.user_id = ? order by ci.id", rs -> {
+            loaded.cartId = rs.getLong(1);
+            loaded.version = rs.getLong(2);
+            long productId = rs.getLong(3);
+            if (!rs.wasNull()) {
+                loaded.lines.put(productId, rs.getInt(4));
+            }
+        }, userId);
+        carts.put(userId, loaded);
+        return loaded;
+    }
+
+    private ReentrantLock stripe(Long userId) {
+        return stripes[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (STRIPES - 1)];
+    }
+
+    /** Working copy of a cart's lines handed to a mutation; product id -> quantity. */
+    public static final class Lines {
+        private final LinkedHashMap<Long, Integer> quantities;
+        private final Set<Long> changed = new HashSet<>();
+
+        private Lines(LinkedHashMap<Long, Integer> quantities) {
+            this.quantities = quantities;
+        }
+
+        public Integer get(Long productId) {
+            return quantities.get(productId);
+        }
+
+        public boolean contains(Long productId) {
+            return quantities.containsKey(productId);
+        }
+
+        // A quantity of 0 or less removes the line
+        public void set(Long productId, int quantity) {
+            if (quantity <= 0) {
+                remove(productId);
+            } else {
+                quantities.put(productId, quantity);
+                changed.add(productId);
+            }
+        }
+
+        public void remove(Long productId) {
+            if (quantities.remove(productId) != null) {
+                changed.add(productId);
+            }
+        }
+
+        public void clear() {
+            changed.addAll(quantities.keySet());
+            quantities.clear();
+        }
+    }
+
+    public static final class Snapshot {
+        private final Long cartId;
+        private final long version;
+        private final LinkedHashMap<Long, Integer> lines;
+
+        private Snapshot(Long cartId, long version, LinkedHashMap<Long, Integer> lines) {
+            this.cartId = cartId;
+            this.version = version;
+            this.lines = lines;
+        }
+
+        public Long getCartId() {
+            return cartId;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Map<Long, Integer> getLines() {
+            return lines;
+        }
+    }
+
+    private static final class MemCart {
+        private Long cartId; // null until the first flush creates the row
+        private long version;
+        private final LinkedHashMap<Long, Integer> lines = new LinkedHashMap<>();
+        private final Set<Long> changed = new HashSet<>(); // product ids to write at the next flush
+        private long touchedAt;
+    }
+
+    private static final class Rewrite {
+        private final Long userId;
+        private Long cartId;
+        private final long version;
+        private final LinkedHashMap<Long, Integer> lines;
+        private final Set<Long> productIds; // every product the DB copy may hold a line for
+        private final Set<Long> missingProducts = new HashSet<>();
+
+        private Rewrite(Long userId, Long cartId, long version, LinkedHashMap<Long, Integer> lines, Set<Long> productIds) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.version = version;
+            this.lines = lines;
+            this.productIds = productIds;
+        }
+    }
+
+    private static final class Pending {
+        private final Long userId;
+        private Long cartId;
+        private Long createdCartId;
+        private final long version;
+        private final Map<Long, Integer> lines; // product id -> quantity, null = delete
+
+        private Pending(Long userId, Long cartId, long version, Map<Long, Integer> lines) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.version = version;
+            this.lines = lines;
+        }
+    }
+}
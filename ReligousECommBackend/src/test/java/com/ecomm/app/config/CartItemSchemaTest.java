@@ -0,0 +1,83 @@
+package com.ecomm.app.config;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+// A cart_item table from before the unique key, with the duplicate lines that kept it from being added
+class CartItemSchemaTest {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+    private final JdbcTemplate jdbc = new JdbcTemplate(database);
+    private final CartItemSchema schema = new CartItemSchema(database);
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void duplicateLinesAreMergedIntoTheOldest() {
+        createLegacyTable();
+        line(1, 10, 2);
+        line(1, 10, 3);
+        line(1, 11, 1);
+        line(2, 10, 4);
+        line(1, 10, 1);
+        line(2, 11, 5);
+        line(2, 11, 5);
+
+        assertEquals(3, schema.mergeDuplicateLines());
+
+        List<Map<String, Object>> lines = jdbc.queryForList("select id, cart_id, product_id, quantity from cart_item order by id");
+        assertEquals(4, lines.size());
+        assertLine(lines.get(0), 1, 1, 10, 6);
+        assertLine(lines.get(1), 3, 1, 11, 1);
+        assertLine(lines.get(2), 4, 2, 10, 4);
+        assertLine(lines.get(3), 6, 2, 11, 10);
+        // What ddl-auto=update could not do before
+        jdbc.execute("alter table cart_item add constraint " + CartItemSchema.UNIQUE_LINE_KEY + " unique (cart_id, product_id)");
+        assertDoesNotThrow(schema::afterSingletonsInstantiated);
+        assertEquals(0, schema.mergeDuplicateLines(), "nothing left to merge on the next start");
+    }
+
+    @Test
+    void newDatabaseIsLeftToHibernate() {
+        assertEquals(0, schema.mergeDuplicateLines());
+    }
+
+    @Test
+    void startupFailsWithoutTheUniqueKey() {
+        createLegacyTable();
+        jdbc.execute("create index idx_cart_item_cart on cart_item (cart_id, product_id)"); // not unique
+
+        assertThrows(IllegalStateException.class, schema::afterSingletonsInstantiated);
+    }
+
+    private void createLegacyTable() {
+        jdbc.execute("create table cart_item (id bigint auto_increment primary key, cart_id bigint, "
+                + "product_id bigint, quantity int not null, version bigint default 0 not null)");
+    }
+
+    private void line(long cartId, long productId, int quantity) {
+        jdbc.update("insert into cart_item (cart_id, product_id, quantity) values (?, ?, ?)", cartId, productId, quantity);
+    }
+
+    private static void assertLine(Map<String, Object> line, long id, long cartId, long productId, int quantity) {
+        assertEquals(id, ((Number) line.get("ID")).longValue());
+        assertEquals(cartId, ((Number) line.get("CART_ID")).longValue());
+        assertEquals(productId, ((Number) line.get("PRODUCT_ID")).longValue());
+        assertEquals(quantity, ((Number) line.get("QUANTITY")).intValue());
+    }
+}
@@ -0,0 +1,139 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.CartView;
+import com.ecomm.app.enums.SqlDialect;
+import com.ecomm.app.exceptions.ResourceNotFoundException;
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.CartItemRepository;
+import com.ecomm.app.repo.CartRepository;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// incrementItem's native upsert, run on a database that actually takes it (H2 has no upsert form)
+abstract class AbstractCartUpsertTest {
+
+    private static final int THREADS = 4;
+    private static final int ADDS_PER_THREAD = 25;
+
+    @Autowired protected CartService cartService;
+    @Autowired protected CartItemRepository cartItemRepository;
+    @Autowired private CartRepository cartRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    protected Long userId;
+    protected Long productId;
+    private Long otherProductId;
+
+    protected abstract SqlDialect expectedDialect();
+
+    // The dialect's upsert statement, called directly
+    protected abstract int upsert(Long userId, Long productId, int quantity);
+
+    @BeforeEach
+    void setUp() {
+        cartService.deleteAllCarts();
+        productId = product("Brass diya");
+        otherProductId = product("Camphor");
+        userId = userRepository.save(new User("upsert" + productId + "@example.com", "secret")).getId();
+    }
+
+    @Test
+    void dialectIsResolvedFromTheConnection() {
+        assertEquals(expectedDialect(), SqlDialect.of(entityManagerFactory));
+    }
+
+    @Test
+    void upsertInsertsThenIncrementsOneLine() {
+        assertEquals(0, (int) transactionTemplate.execute(status -> upsert(userId, productId, 2)),
+                "no cart, nothing to upsert into");
+        cartService.addToCart(userId, otherProductId, 1);
+
+        transactionTemplate.executeWithoutResult(status -> upsert(userId, productId, 2));
+        transactionTemplate.executeWithoutResult(status -> upsert(userId, productId, 3));
+
+        assertEquals(5, quantity(productId));
+        assertEquals(2, cartService.getCartView(userId).getItems().size());
+    }
+
+    @Test
+    void incrementItemCreatesTheCartThenUpserts() {
+        cartService.incrementItem(userId, productId, 1);
+        cartService.incrementItem(userId, productId, 2);
+        cartService.incrementItem(userId, otherProductId, 4);
+
+        assertEquals(3, quantity(productId));
+        assertEquals(4, quantity(otherProductId));
+        assertEquals(1, cartRepository.count());
+    }
+
+    @Test
+    void unknownProductIsNotFound() {
+        cartService.addToCart(userId, otherProductId, 1);
+
+        assertThrows(ResourceNotFoundException.class, () -> cartService.incrementItem(userId, Long.MAX_VALUE, 1));
+        assertEquals(1, cartService.getCartView(userId).getItems().size());
+    }
+
+    @Test
+    void concurrentIncrementsAreAllCounted() throws Exception {
+        cartService.addToCart(userId, otherProductId, 1);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                        cartService.incrementItem(userId, productId, 1);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(THREADS * ADDS_PER_THREAD, quantity(productId));
+    }
+
+    protected int quantity(Long productId) {
+        CartView cart = cartService.getCartView(userId);
+        return cart.getItems().stream().filter(item -> item.getProduct().getId().equals(productId))
+                .mapToInt(CartView.Item::getQuantity).sum();
+    }
+
+    private Long product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(199);
+        product.setStock(100);
+        return productRepository.save(product).getId();
+    }
+}
@@ -0,0 +1,98 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ecomm.app.config.CartItemSchema;
+import com.ecomm.app.dtos.CartView;
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.CartRepository;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.UserRepository;
+
+// A few clients adding the same product to the same (initially missing) cart, under the retry policy
+// that ships (cart.retry.* from application.properties): an add either counts or is reported as a
+// conflict the controller answers with 409, never lost
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({CartService.class, CartItemSchema.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // every CartService call commits on its own
+class CartServiceConcurrencyTest {
+
+    private static final int THREADS = 3;
+    private static final int ADDS_PER_THREAD = 25;
+
+    @Autowired private CartService cartService;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CartRepository cartRepository;
+
+    @Test
+    void concurrentAddsToSameLineAreAllCounted() throws Exception {
+        Product product = new Product();
+        product.setName("Brass diya");
+        product.setPrice(199);
+        product.setStock(1000);
+        Long productId = productRepository.save(product).getId();
+        Long userId = userRepository.save(new User("stress@example.com", "secret")).getId();
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                        try {
+                            cartService.addToCart(userId, productId, 1);
+                            succeeded.incrementAndGet();
+                        } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                            conflicts.incrementAndGet(); // 409, the client retries
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        CartView cart = cartService.getCartView(userId);
+        assertEquals(THREADS * ADDS_PER_THREAD, succeeded.get() + conflicts.get());
+        assertEquals(1, cartRepository.count(), "one cart per user");
+        assertEquals(1, cart.getItems().size(), "one line per product");
+        assertEquals(succeeded.get(), cart.getItems().get(0).getQuantity(), "no lost increments");
+        // Back to back on one line this typically ends with 0-4 conflicts out of 75; without the retry
+        // most adds would conflict
+        assertTrue(conflicts.get() <= THREADS * ADDS_PER_THREAD / 4,
+                "the shipped retry budget should absorb most of the contention, got " + conflicts + " conflicts");
+    }
+}
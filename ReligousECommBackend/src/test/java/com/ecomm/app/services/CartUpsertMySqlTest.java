@@ -0,0 +1,57 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ecomm.app.enums.SqlDialect;
+import com.ecomm.app.repo.CartItemRepository;
+
+// upsertQuantityMySql on H2 in MySQL mode, which takes ON DUPLICATE KEY UPDATE ... VALUES(col)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cart-upsert-mysql;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop", // update would take H2's information_schema.users for ours
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CartService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // every CartService call commits on its own
+class CartUpsertMySqlTest extends AbstractCartUpsertTest {
+
+    @MockitoSpyBean private CartItemRepository spiedCartItems;
+
+    @Override
+    protected SqlDialect expectedDialect() {
+        return SqlDialect.MYSQL;
+    }
+
+    @Override
+    protected int upsert(Long userId, Long productId, int quantity) {
+        return cartItemRepository.upsertQuantityMySql(userId, productId, quantity);
+    }
+
+    @Test
+    void failedUpsertFallsBackToTheEntityPath() {
+        cartService.addToCart(userId, productId, 1);
+        doThrow(new InvalidDataAccessResourceUsageException("no unique constraint matching the upsert"))
+                .when(spiedCartItems).upsertQuantityMySql(anyLong(), anyLong(), anyInt());
+
+        cartService.incrementItem(userId, productId, 2);
+
+        assertEquals(3, quantity(productId));
+    }
+}
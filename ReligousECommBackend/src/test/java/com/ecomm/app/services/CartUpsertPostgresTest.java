@@ -0,0 +1,39 @@
+package com.ecomm.app.services;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.ecomm.app.enums.SqlDialect;
+
+// upsertQuantityPostgres (ON CONFLICT ... DO UPDATE) against the database prod runs on
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(CartService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // every CartService call commits on its own
+class CartUpsertPostgresTest extends AbstractCartUpsertTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Override
+    protected SqlDialect expectedDialect() {
+        return SqlDialect.POSTGRES;
+    }
+
+    @Override
+    protected int upsert(Long userId, Long productId, int quantity) {
+        return cartItemRepository.upsertQuantityPostgres(userId, productId, quantity);
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecomm.app.services;
+
+import java.util.List;
+
+import com.ecomm.app.dtos.OrderItemDto;
+import com.ecomm.app.dtos.PlaceOrderRequest;
+import com.ecomm.app.enums.PaymentMethod;
+
+// Order requests as the storefront sends them, cash on delivery unless the test changes it
+final class OrderFixtures {
+
+    private OrderFixtures() {
+    }
+
+    static OrderItemDto item(Long productId, int quantity) {
+        OrderItemDto item = new OrderItemDto();
+        item.setProductId(productId.toString());
+        item.setQuantity(quantity);
+        item.setPrice(0.01); // ignored: the server prices the order
+        return item;
+    }
+
+    static PlaceOrderRequest request(Long userId, List<OrderItemDto> items) {
+        PlaceOrderRequest request = new PlaceOrderRequest();
+        request.setUserId(userId);
+        request.setItems(items);
+        request.setTotalAmount(0.01); // ignored as well
+        request.setPaymentMethod(PaymentMethod.COD);
+        return request;
+    }
+
+    static PlaceOrderRequest request(Long userId, OrderItemDto... items) {
+        return request(userId, List.of(items));
+    }
+}
@@ -0,0 +1,193 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.PlaceOrderRequest;
+import com.ecomm.app.dtos.UserOrderResponse;
+import com.ecomm.app.exceptions.IdempotencyConflictException;
+import com.ecomm.app.exceptions.InsufficientStockException;
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.IdempotencyRecordRepository;
+import com.ecomm.app.repo.OrderRepository;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.UserRepository;
+
+// One order per (user, Idempotency-Key), however the retries arrive
+@OrderPlacementTest
+@Import(OrderIdempotencyService.class)
+class OrderIdempotencyServiceTest {
+
+    private static final int THREADS = 12;
+
+    @Autowired private OrderIdempotencyService idempotencyService;
+    @Autowired private OrderService orderService;
+    @Autowired private IdempotencyRecordRepository recordRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+
+    private Long userId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        recordRepository.deleteAll();
+        orderRepository.deleteAll();
+        Product product = new Product();
+        product.setName("Brass diya");
+        product.setPrice(199);
+        product.setStock(100);
+        productId = productRepository.save(product).getId();
+        userId = userRepository.save(new User("buyer" + productId + "@example.com", "secret")).getId();
+    }
+
+    @Test
+    void replayReturnsTheFirstOrder() {
+        String first = idempotencyService.placeOrder(userId, "key-1", request(2)).getId();
+        String replay = idempotencyService.placeOrder(userId, " key-1 ", request(2)).getId();
+
+        assertEquals(first, replay);
+        assertEquals(1, orderRepository.count());
+        assertEquals(98, stock());
+    }
+
+    @Test
+    void replayAfterRestartIsAnsweredFromTheStoredKey() {
+        String first = idempotencyService.placeOrder(userId, "key-1", request(2)).getId();
+
+        String replay = freshInstance().placeOrder(userId, "key-1", request(2)).getId();
+
+        assertEquals(first, replay);
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void sameKeyWithADifferentOrderIsRejected() {
+        idempotencyService.placeOrder(userId, "key-1", request(2));
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.placeOrder(userId, "key-1", request(3)));
+        assertThrows(IdempotencyConflictException.class, () -> freshInstance().placeOrder(userId, "key-1", request(3)));
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void keysAreScopedPerUser() {
+        Long otherUser = userRepository.save(new User("other" + productId + "@example.com", "secret")).getId();
+
+        String mine = idempotencyService.placeOrder(userId, "key-1", request(1)).getId();
+        PlaceOrderRequest theirs = request(1);
+        theirs.setUserId(otherUser);
+
+        assertNotEquals(mine, idempotencyService.placeOrder(otherUser, "key-1", theirs).getId());
+        assertEquals(2, orderRepository.count());
+    }
+
+    @Test
+    void ordersArePlacedForTheCallerWhateverTheBodySays() {
+        Long otherUser = userRepository.save(new User("victim" + productId + "@example.com", "secret")).getId();
+        PlaceOrderRequest forged = request(1);
+        forged.setUserId(otherUser);
+
+        UserOrderResponse placed = idempotencyService.placeOrder(userId, "key-1", forged);
+        PlaceOrderRequest forgedWithoutKey = request(1);
+        forgedWithoutKey.setUserId(otherUser);
+        UserOrderResponse unkeyed = idempotencyService.placeOrder(userId, null, forgedWithoutKey);
+
+        assertEquals(userId, placed.getUserId());
+        assertEquals(userId, unkeyed.getUserId());
+        assertEquals(List.of(), orderService.getByUser(otherUser));
+        // The other user's own request with the same key is theirs, not a replay of the caller's order
+        PlaceOrderRequest theirs = request(1);
+        theirs.setUserId(otherUser);
+        UserOrderResponse own = idempotencyService.placeOrder(otherUser, "key-1", theirs);
+        assertNotEquals(placed.getId(), own.getId());
+        assertEquals(otherUser, own.getUserId());
+    }
+
+    @Test
+    void fingerprintCoversTheUser() {
+        PlaceOrderRequest mine = request(1);
+        PlaceOrderRequest theirs = request(1);
+        theirs.setUserId(userId + 1);
+
+        assertNotEquals(OrderIdempotencyService.fingerprint(mine), OrderIdempotencyService.fingerprint(theirs));
+    }
+
+    @Test
+    void failedRequestCanBeRetriedWithTheSameKey() {
+        assertThrows(InsufficientStockException.class, () -> idempotencyService.placeOrder(userId, "key-1", request(500)));
+        assertEquals(0, orderRepository.count());
+        assertEquals(0, recordRepository.count(), "the claim rolls back with the order");
+
+        Product product = productRepository.findById(productId).orElseThrow();
+        product.setStock(1000);
+        productRepository.save(product);
+
+        idempotencyService.placeOrder(userId, "key-1", request(500));
+        assertEquals(1, orderRepository.count());
+        assertEquals(500, stock());
+    }
+
+    @Test
+    void concurrentRequestsWithTheSameKeyPlaceOneOrder() throws Exception {
+        // Half the threads go through a second instance with its own cache and in-flight map,
+        // as on another node: only the unique key in the DB can stop those
+        OrderIdempotencyService otherInstance = freshInstance();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        Set<String> orderIds = new HashSet<>();
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                OrderIdempotencyService service = t % 2 == 0 ? idempotencyService : otherInstance;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return service.placeOrder(userId, "double-click", request(3)).getId();
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                orderIds.add(result.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, orderIds.size(), "every request gets the same order");
+        assertEquals(1, orderRepository.count());
+        assertEquals(1, recordRepository.count());
+        assertEquals(97, stock());
+    }
+
+    private OrderIdempotencyService freshInstance() {
+        return new OrderIdempotencyService(orderService, recordRepository, transactionTemplate, 1000, 30_000, 24);
+    }
+
+    private int stock() {
+        return productRepository.findById(productId).orElseThrow().getStock();
+    }
+
+    private PlaceOrderRequest request(int quantity) {
+        return OrderFixtures.request(userId, OrderFixtures.item(productId, quantity));
+    }
+}
@@ -0,0 +1,122 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import com.ecomm.app.dtos.OrderItemDto;
+import com.ecomm.app.dtos.PlaceOrderRequest;
+import com.ecomm.app.dtos.UserOrderResponse;
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Order placement latency for 1, 10 and 50 lines, and pricing staying one product query per order.
+// The latency run is tagged "benchmark" and left out of the default build: mvn test -Pbenchmark
+@OrderPlacementTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderPlacementBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPlacementBenchmarkTest.class);
+
+    private static final int PRODUCTS = 50;
+    private static final int WARMUP = 50;
+    private static final int RUNS = 200;
+    private static final int QUERY_CHECK_RUNS = 5;
+
+    @Autowired private OrderService orderService;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private Long userId;
+    private List<Long> productIds;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Puja item " + i);
+            product.setCategory("Puja");
+            product.setPrice(10 + i + 0.99);
+            product.setStock(1_000_000);
+            productIds.add(productRepository.save(product).getId());
+        }
+        userId = userRepository.save(new User("bench" + productIds.get(0) + "@example.com", "secret")).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void pricingIsOneProductQueryPerOrder() {
+        for (int lines : new int[] { 1, 10, 50 }) {
+            place(lines, QUERY_CHECK_RUNS);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void placeOrderLatencyByLineCount() {
+        for (int lines : new int[] { 1, 10, 50 }) {
+            PlaceOrderRequest request = request(userId, productIds.subList(0, lines));
+            for (int i = 0; i < WARMUP; i++) {
+                orderService.placeOrder(request);
+            }
+            long[] nanos = place(lines, RUNS);
+            Arrays.sort(nanos);
+            logger.info(String.format("placeOrder %2d lines: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms", lines,
+                    nanos[RUNS / 2] / 1e6, nanos[RUNS * 9 / 10] / 1e6, nanos[RUNS * 99 / 100] / 1e6));
+        }
+    }
+
+    // Places runs orders of this many lines, checks the total and the statements; the latency of each
+    private long[] place(int lines, int runs) {
+        PlaceOrderRequest request = request(userId, productIds.subList(0, lines));
+        double expectedTotal = 0;
+        for (int i = 0; i < lines; i++) {
+            expectedTotal += (10 + i + 0.99) * 2;
+        }
+
+        statistics.clear();
+        long[] nanos = new long[runs];
+        UserOrderResponse response = null;
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            response = orderService.placeOrder(request);
+            nanos[i] = System.nanoTime() - started;
+        }
+
+        assertEquals(Math.round(expectedTotal * 100) / 100.0, response.getTotalAmount(), 1e-9, "server-side total");
+        assertEquals(lines, response.getItems().size());
+        // One product query and one user load per order, whatever the line count; then the inserts.
+        // Nothing sells out, so there is no post-commit re-read for the indexes
+        assertEquals(runs, statistics.getQueryExecutionCount(), "product lookups");
+        assertEquals(runs, statistics.getEntityLoadCount(), "user loads");
+        assertEquals(runs * (1L + lines), statistics.getEntityInsertCount(), "order and line inserts");
+        return nanos;
+    }
+
+    private static PlaceOrderRequest request(Long userId, List<Long> productIds) {
+        List<OrderItemDto> items = new ArrayList<>();
+        for (Long productId : productIds) {
+            items.add(OrderFixtures.item(productId, 2));
+        }
+        return OrderFixtures.request(userId, items);
+    }
+}
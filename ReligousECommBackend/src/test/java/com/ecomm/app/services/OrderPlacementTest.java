@@ -0,0 +1,30 @@
+package com.ecomm.app.services;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * JPA slice with OrderService and everything it calls after commit, for tests that place real orders.
+ * Nothing runs in a test transaction: every placeOrder call, and whatever the test does next, commits on
+ * its own, as it does in production. The scheduled outbox poll is pushed past the end of the run.
+ * Further beans go in an @Import on the test class, further properties in a @TestPropertySource.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "outbox.initial-delay-ms=3600000"
+})
+@Import({OrderService.class, OutboxService.class, ProductService.class, CatalogCache.class, ProductSearchIndex.class,
+        ProductSuggestionIndex.class, ProductFacetIndex.class, FeaturedProductService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@interface OrderPlacementTest {
+}
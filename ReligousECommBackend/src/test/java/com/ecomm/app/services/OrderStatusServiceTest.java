@@ -0,0 +1,114 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import com.ecomm.app.dtos.OrderTransitionReport;
+import com.ecomm.app.dtos.OrderTransitionRequest;
+import com.ecomm.app.dtos.PlaceOrderRequest;
+import com.ecomm.app.enums.OrderStatus;
+import com.ecomm.app.enums.PaymentMethod;
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.UserRepository;
+
+// Which transitions hand the ordered units back to stock, and only once
+@OrderPlacementTest
+@Import(OrderStatusService.class)
+class OrderStatusServiceTest {
+
+    private static final int STOCK = 10;
+
+    @Autowired private OrderStatusService orderStatusService;
+    @Autowired private OrderService orderService;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+
+    private Long userId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setName("Silver kalash");
+        product.setPrice(2499);
+        product.setStock(STOCK);
+        productId = productRepository.save(product).getId();
+        userId = userRepository.save(new User("status" + productId + "@example.com", "secret")).getId();
+    }
+
+    @Test
+    void cancellingRestocksOnceAndTheRefundAddsNothing() {
+        String id = place(PaymentMethod.RAZORPAY, 3);
+        assertEquals(STOCK - 3, stock());
+
+        move(id, OrderStatus.CANCELLED);
+        assertEquals(STOCK, stock());
+        move(id, OrderStatus.REFUNDED);
+        assertEquals(STOCK, stock());
+    }
+
+    @Test
+    void refundBeforeDispatchRestocks() {
+        String id = place(PaymentMethod.RAZORPAY, 2);
+
+        move(id, OrderStatus.REFUNDED);
+
+        assertEquals(STOCK, stock());
+    }
+
+    @Test
+    void refundAfterDeliveryLeavesStockAlone() {
+        String id = place(PaymentMethod.RAZORPAY, 4);
+        move(id, OrderStatus.PROCESSING);
+        move(id, OrderStatus.SHIPPED);
+        move(id, OrderStatus.DELIVERED);
+
+        move(id, OrderStatus.REFUNDED);
+
+        assertEquals(STOCK - 4, stock(), "the customer still has the goods");
+    }
+
+    @Test
+    void unpaidCancellationCannotBeRefunded() {
+        String id = place(PaymentMethod.COD, 1);
+        move(id, OrderStatus.CANCELLED);
+
+        OrderTransitionReport report = orderStatusService.transition(request(id, OrderStatus.REFUNDED));
+
+        assertEquals(0, report.getTransitioned());
+        assertEquals(OrderStatus.CANCELLED, report.getRejected().get(0).getStatus());
+        assertEquals(STOCK, stock());
+    }
+
+    private void move(String orderId, OrderStatus target) {
+        assertEquals(1, orderStatusService.transition(request(orderId, target)).getTransitioned(), "to " + target);
+    }
+
+    private static OrderTransitionRequest request(String orderId, OrderStatus target) {
+        OrderTransitionRequest request = new OrderTransitionRequest();
+        request.setOrderIds(List.of(orderId));
+        request.setTarget(target);
+        return request;
+    }
+
+    private String place(PaymentMethod paymentMethod, int quantity) {
+        PlaceOrderRequest request = OrderFixtures.request(userId, OrderFixtures.item(productId, quantity));
+        request.setPaymentMethod(paymentMethod);
+        if (paymentMethod == PaymentMethod.RAZORPAY) {
+            request.setRazorpayPaymentId("pay_" + quantity);
+        }
+        return orderService.placeOrder(request).getId();
+    }
+
+    private int stock() {
+        return productRepository.findById(productId).orElseThrow().getStock();
+    }
+}
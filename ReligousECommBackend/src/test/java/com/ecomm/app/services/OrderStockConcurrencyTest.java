@@ -0,0 +1,133 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static com.ecomm.app.services.OrderFixtures.item;
+import static com.ecomm.app.services.OrderFixtures.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.ecomm.app.dtos.OrderItemDto;
+import com.ecomm.app.exceptions.InsufficientStockException;
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.OrderRepository;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.UserRepository;
+
+// Hundreds of parallel checkouts against little stock: nothing oversold, no deadlock, no partial order
+@OrderPlacementTest
+class OrderStockConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS = 400;
+    private static final int[] STOCK = { 60, 40, 25 };
+
+    @Autowired private OrderService orderService;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private CatalogCache catalogCache;
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        long[] productIds = new long[STOCK.length];
+        for (int i = 0; i < STOCK.length; i++) {
+            Product product = new Product();
+            product.setName("Limited idol " + i);
+            product.setPrice(499);
+            product.setStock(STOCK[i]);
+            productIds[i] = productRepository.save(product).getId();
+        }
+        Long userId = userRepository.save(new User("checkout@example.com", "secret")).getId();
+
+        int[] sold = new int[STOCK.length];
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int n = 0; n < ORDERS; n++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    // One to three lines in random (often descending) product order, 1-2 units each
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int[] quantities = new int[STOCK.length];
+                    List<OrderItemDto> items = new ArrayList<>();
+                    for (int i = STOCK.length - 1; i >= 0; i--) {
+                        if (random.nextInt(3) > 0) {
+                            quantities[i] = 1 + random.nextInt(2);
+                            items.add(item(productIds[i], quantities[i]));
+                        }
+                    }
+                    if (items.isEmpty()) {
+                        quantities[0] = 1;
+                        items.add(item(productIds[0], 1));
+                    }
+                    try {
+                        orderService.placeOrder(request(userId, items));
+                        placed.incrementAndGet();
+                        synchronized (sold) {
+                            for (int i = 0; i < sold.length; i++) {
+                                sold[i] += quantities[i];
+                            }
+                        }
+                    } catch (InsufficientStockException e) {
+                        outOfStock.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, failed.get(), "no deadlocks or other errors, only out-of-stock rejections");
+        assertEquals(ORDERS, placed.get() + outOfStock.get());
+        assertTrue(outOfStock.get() > 0, "the stock should run out");
+        assertEquals(placed.get(), orderRepository.count(), "rejected orders leave no rows");
+        for (int i = 0; i < STOCK.length; i++) {
+            int left = productRepository.findById(productIds[i]).orElseThrow().getStock();
+            assertTrue(left >= 0, "never oversold");
+            assertEquals(STOCK[i] - sold[i], left, "stock matches what the placed orders took");
+        }
+    }
+
+    @Test
+    void onlySellingOutChangesTheCatalog() {
+        Product product = new Product();
+        product.setName("Last brass lamps");
+        product.setPrice(899);
+        product.setStock(3);
+        long productId = productRepository.save(product).getId();
+        Long userId = userRepository.save(new User("sellout@example.com", "secret")).getId();
+        String etag = catalogCache.catalogETag();
+
+        orderService.placeOrder(request(userId, item(productId, 1)));
+        assertEquals(etag, catalogCache.catalogETag(), "a sale that leaves stock keeps cached listings");
+
+        orderService.placeOrder(request(userId, item(productId, 2)));
+        assertNotEquals(etag, catalogCache.catalogETag(), "selling out drops them");
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getStock());
+    }
+}
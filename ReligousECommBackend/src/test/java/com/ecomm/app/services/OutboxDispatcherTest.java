@@ -0,0 +1,207 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.enums.OutboxStatus;
+import com.ecomm.app.models.OutboxEvent;
+import com.ecomm.app.repo.OutboxEventRepository;
+
+// Retries with backoff, gives up after max-attempts, and recovers rows whose lease ran out
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "outbox.max-attempts=3",
+        "outbox.backoff-ms=0",
+        "outbox.lease-ms=500",
+        "outbox.initial-delay-ms=3600000" // the test drives dispatchDue itself
+})
+@Import({OutboxService.class, OutboxDispatcher.class, OutboxDispatcherTest.Handlers.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // publish and dispatch commit on their own
+class OutboxDispatcherTest {
+
+    @Autowired private OutboxService outboxService;
+    @Autowired private OutboxDispatcher dispatcher;
+    @Autowired private OutboxEventRepository outboxRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private Handlers handlers;
+
+    @BeforeEach
+    void clean() {
+        outboxRepository.deleteAll();
+        handlers.reset();
+    }
+
+    @AfterEach
+    void release() {
+        handlers.hang.countDown();
+    }
+
+    @Test
+    void failedAttemptsAreRetriedUntilTheHandlerSucceeds() {
+        handlers.failuresLeft.set(2);
+        publish("test.flaky");
+
+        assertEquals(0, dispatcher.dispatchDue());
+        assertEquals(0, dispatcher.dispatchDue());
+        OutboxEvent failing = only();
+        assertEquals(OutboxStatus.PENDING, failing.getStatus());
+        assertEquals(2, failing.getAttempts());
+        assertTrue(failing.getLastError().contains("attempt 2"), failing.getLastError());
+
+        assertEquals(1, dispatcher.dispatchDue());
+        OutboxEvent done = only();
+        assertEquals(OutboxStatus.DONE, done.getStatus());
+        assertEquals(3, done.getAttempts());
+        assertNull(done.getClaimToken());
+        assertNull(done.getLastError());
+        assertEquals(3, handlers.calls.get("test.flaky").get());
+    }
+
+    @Test
+    void rowIsParkedAsFailedAfterMaxAttempts() {
+        handlers.failuresLeft.set(Integer.MAX_VALUE);
+        publish("test.flaky");
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatchDue();
+        }
+
+        OutboxEvent failed = only();
+        assertEquals(OutboxStatus.FAILED, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+        assertEquals(3, handlers.calls.get("test.flaky").get(), "no attempts past max-attempts");
+    }
+
+    @Test
+    void rowClaimedByADeadDispatcherIsRedeliveredOnceItsLeaseRunsOut() throws Exception {
+        publish("test.ok");
+        Long id = only().getId();
+        // Another instance claims the row and dies before reporting back
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status ->
+                outboxRepository.claim(List.of(id), "dead-dispatcher", now, now.plusNanos(300_000_000L)));
+
+        assertEquals(0, dispatcher.dispatchDue(), "leased rows are not due");
+        assertEquals(0, handlers.calls.get("test.ok").get());
+
+        Thread.sleep(400);
+        assertEquals(1, dispatcher.dispatchDue());
+        OutboxEvent done = only();
+        assertEquals(OutboxStatus.DONE, done.getStatus());
+        assertEquals(2, done.getAttempts());
+
+        // The dead instance's late report no longer matches the claim
+        int stale = transactionTemplate.execute(status -> outboxRepository.markAttemptFailed(id, "dead-dispatcher",
+                OutboxStatus.PENDING, LocalDateTime.now(), "late"));
+        assertEquals(0, stale);
+        assertEquals(OutboxStatus.DONE, only().getStatus());
+    }
+
+    @Test
+    void handlerRunningPastItsLeaseCountsAsAFailedAttempt() {
+        publish("test.hung");
+
+        long started = System.nanoTime();
+        assertEquals(0, dispatcher.dispatchDue());
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue(tookMs < 5000, "dispatch waited " + tookMs + " ms for a hung handler");
+        OutboxEvent timedOut = only();
+        assertEquals(OutboxStatus.PENDING, timedOut.getStatus());
+        assertEquals(1, timedOut.getAttempts());
+        assertNull(timedOut.getClaimToken());
+        assertTrue(timedOut.getLastError().startsWith("TimeoutException"), timedOut.getLastError());
+    }
+
+    private void publish(String eventType) {
+        transactionTemplate.executeWithoutResult(status -> outboxService.publish(eventType, "42", Map.of("n", 1)));
+    }
+
+    private OutboxEvent only() {
+        List<OutboxEvent> rows = outboxRepository.findAll();
+        assertEquals(1, rows.size());
+        return rows.get(0);
+    }
+
+    @TestConfiguration
+    static class Handlers {
+
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        volatile CountDownLatch hang = new CountDownLatch(1);
+
+        void reset() {
+            calls.clear();
+            calls.put("test.ok", new AtomicInteger());
+            calls.put("test.flaky", new AtomicInteger());
+            calls.put("test.hung", new AtomicInteger());
+            failuresLeft.set(0);
+            hang = new CountDownLatch(1);
+        }
+
+        @Bean
+        OutboxHandler okHandler() {
+            return handler("test.ok", () -> { });
+        }
+
+        @Bean
+        OutboxHandler flakyHandler() {
+            return handler("test.flaky", () -> {
+                if (failuresLeft.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Downstream unavailable, attempt " + calls.get("test.flaky").get());
+                }
+            });
+        }
+
+        @Bean
+        OutboxHandler hungHandler() {
+            return handler("test.hung", () -> hang.await(30, TimeUnit.SECONDS));
+        }
+
+        private OutboxHandler handler(String type, Work work) {
+            return new OutboxHandler() {
+                @Override
+                public String eventType() {
+                    return type;
+                }
+
+                @Override
+                public String name() {
+                    return type;
+                }
+
+                @Override
+                public void handle(OutboxEvent event) throws Exception {
+                    calls.get(type).incrementAndGet();
+                    work.run();
+                }
+            };
+        }
+    }
+
+    interface Work {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,157 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.ecomm.app.dtos.ProductDetail;
+
+// The trigram index must return exactly what a substring scan over the same products returns
+class ProductSearchIndexTest {
+
+    private static final String[] WORDS = { "brass", "diya", "incense", "sandal", "rudraksha", "mala", "puja",
+            "thali", "ganesh", "idol", "copper", "kalash", "silver", "lamp", "agarbatti", "camphor", "kumkum",
+            "haldi", "tulsi", "japa", "bell", "conch", "shankh", "aarti", "deepam", "Om", "Shri", "marble" };
+    private static final String[] CATEGORIES = { "Puja", "Idols", "Incense", "Malas", null };
+
+    private final TreeMap<Long, ProductDetail> reference = new TreeMap<>();
+
+    @Test
+    void matchesSubstringScanThroughPutsUpdatesAndRemoves() {
+        Random random = new Random(42);
+        ProductSearchIndex index = new ProductSearchIndex();
+        List<ProductDetail> initial = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            ProductDetail product = randomProduct(id, random);
+            initial.add(product);
+            reference.put(id, product);
+        }
+        index.rebuild(initial);
+        assertSameAsScan(index, random);
+
+        long nextId = 301;
+        for (int round = 0; round < 20; round++) {
+            for (int op = 0; op < 40; op++) {
+                int kind = random.nextInt(3);
+                if (kind == 0 || reference.isEmpty()) {
+                    ProductDetail product = randomProduct(nextId++, random); // may reuse a freed doc id
+                    index.put(product);
+                    reference.put(product.getId(), product);
+                } else if (kind == 1) {
+                    Long id = randomId(random);
+                    ProductDetail product = randomProduct(id, random); // re-index under the same id
+                    index.put(product);
+                    reference.put(id, product);
+                } else {
+                    Long id = randomId(random);
+                    index.remove(id);
+                    reference.remove(id);
+                }
+            }
+            assertEquals(reference.size(), index.size());
+            assertSameAsScan(index, random);
+        }
+    }
+
+    @Test
+    void reusedDocIdDoesNotLeakTheRemovedProduct() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(product(1L, "Brass diya", "Puja", "Hand made"),
+                product(2L, "Sandalwood incense", "Incense", "Twenty sticks")));
+
+        index.remove(1L);
+        index.put(product(3L, "Rudraksha mala", "Malas", "108 beads"));
+
+        assertTrue(index.search("brass", null).isEmpty());
+        assertTrue(index.search("diya", null).isEmpty());
+        assertEquals(List.of(3L), ids(index.search("rudraksha", null)));
+        assertEquals(List.of(3L), ids(index.search("108", null)));
+        assertEquals(List.of(2L), ids(index.search("sandal", null)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void reindexingDropsTheOldText() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(product(1L, "Brass diya", "Puja", null)));
+
+        index.put(product(1L, "Copper kalash", "Puja", null));
+
+        assertTrue(index.search("brass", null).isEmpty());
+        assertEquals(List.of(1L), ids(index.search("kalash", "puja")));
+        assertTrue(index.search("kalash", "Idols").isEmpty());
+    }
+
+    private void assertSameAsScan(ProductSearchIndex index, Random random) {
+        List<String> queries = new ArrayList<>(List.of("a", "ri", "  BRASS ", "sandal incense", "zzz", "\n", ""));
+        List<ProductDetail> products = new ArrayList<>(reference.values());
+        for (int i = 0; i < 60 && !products.isEmpty(); i++) {
+            ProductDetail product = products.get(random.nextInt(products.size()));
+            String text = product.getName() + " " + product.getDescription();
+            int start = random.nextInt(text.length());
+            int end = Math.min(text.length(), start + 1 + random.nextInt(8));
+            queries.add(random.nextBoolean() ? text.substring(start, end).toUpperCase() : text.substring(start, end));
+        }
+        for (String query : queries) {
+            for (String category : new String[] { null, "puja", "Incense" }) {
+                assertEquals(ids(scan(query, category)), ids(index.search(query, category)),
+                        "query '" + query + "' in " + category);
+            }
+        }
+    }
+
+    // What search() promises: a case-insensitive substring of name, category or description
+    private List<ProductDetail> scan(String query, String category) {
+        String q = ProductSearchIndex.normalize(query);
+        List<ProductDetail> matches = new ArrayList<>();
+        if (q.isEmpty()) {
+            return matches;
+        }
+        for (ProductDetail product : reference.values()) {
+            boolean text = ProductSearchIndex.normalize(product.getName()).contains(q)
+                    || ProductSearchIndex.normalize(product.getCategory()).contains(q)
+                    || ProductSearchIndex.normalize(product.getDescription()).contains(q);
+            boolean inCategory = category == null || category.equalsIgnoreCase(product.getCategory());
+            if (text && inCategory) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    private Long randomId(Random random) {
+        List<Long> ids = new ArrayList<>(reference.keySet());
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static ProductDetail randomProduct(long id, Random random) {
+        return product(id, phrase(random, 1 + random.nextInt(3)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                phrase(random, random.nextInt(6)));
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append(i == 0 ? "" : random.nextInt(4) == 0 ? "  " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static ProductDetail product(Long id, String name, String category, String description) {
+        return new ProductDetail(id, name, category, 100, 120, 5, null, description, 4.5);
+    }
+
+    private static List<Long> ids(List<ProductDetail> products) {
+        List<Long> ids = new ArrayList<>(products.size());
+        for (ProductDetail product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,135 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.ecomm.app.dtos.ProductDetail;
+
+// The ternary search tree's cached top-k must match ranking every product that has a word starting with the prefix
+class ProductSuggestionIndexTest {
+
+    private static final int TOP_K = 5;
+    private static final String[] WORDS = { "ganesh", "ganesha", "ganga", "gangajal", "brass", "brahma", "diya",
+            "diyas", "lord", "idol", "incense", "ink", "rudraksha", "rudra", "mala", "malas", "Om", "kumkum" };
+    private static final double[] RATINGS = { 3.5, 4.0, 4.0, 4.5, 5.0 };
+
+    private final TreeMap<Long, ProductDetail> reference = new TreeMap<>();
+
+    @Test
+    void matchesFullRankingThroughPutsUpdatesAndRemoves() {
+        Random random = new Random(7);
+        ProductSuggestionIndex index = new ProductSuggestionIndex(TOP_K);
+        List<ProductDetail> initial = new ArrayList<>();
+        for (long id = 1; id <= 150; id++) {
+            ProductDetail product = randomProduct(id, random);
+            initial.add(product);
+            reference.put(id, product);
+        }
+        index.rebuild(initial);
+        assertSameAsRanking(index);
+
+        long nextId = 151;
+        for (int round = 0; round < 25; round++) {
+            for (int op = 0; op < 20; op++) {
+                int kind = random.nextInt(3);
+                if (kind == 0 || reference.isEmpty()) {
+                    ProductDetail product = randomProduct(nextId++, random);
+                    index.put(product);
+                    reference.put(product.getId(), product);
+                } else if (kind == 1) {
+                    List<Long> ids = new ArrayList<>(reference.keySet());
+                    ProductDetail product = randomProduct(ids.get(random.nextInt(ids.size())), random);
+                    index.put(product); // new name and rating under the same id
+                    reference.put(product.getId(), product);
+                } else {
+                    List<Long> ids = new ArrayList<>(reference.keySet());
+                    Long id = ids.get(random.nextInt(ids.size()));
+                    index.remove(id);
+                    reference.remove(id);
+                }
+            }
+            assertSameAsRanking(index);
+        }
+    }
+
+    @Test
+    void removingTheBestMatchPromotesTheNextOne() {
+        ProductSuggestionIndex index = new ProductSuggestionIndex(2);
+        index.rebuild(List.of(product(1L, "Lord Ganesha Idol", 5.0), product(2L, "Ganga Jal", 4.5),
+                product(3L, "Ganesh Diya", 4.0)));
+
+        assertEquals(List.of("Lord Ganesha Idol", "Ganga Jal"), index.suggest("ga", 10));
+        assertEquals(List.of("Lord Ganesha Idol"), index.suggest("idol", 10));
+
+        index.remove(1L);
+
+        assertEquals(List.of("Ganga Jal", "Ganesh Diya"), index.suggest("GA", 10));
+        assertTrue(index.suggest("idol", 10).isEmpty());
+        assertTrue(index.suggest("lord", 10).isEmpty());
+    }
+
+    private void assertSameAsRanking(ProductSuggestionIndex index) {
+        Set<String> prefixes = new LinkedHashSet<>(List.of("g", "ga", "gan", "gang", "ganesha i", "b", "br", "i",
+                "in", "ru", "m", "om", "x", "lord g", "  DIYA "));
+        for (String word : WORDS) {
+            for (int length = 1; length <= word.length(); length++) {
+                prefixes.add(word.substring(0, length));
+            }
+        }
+        for (String prefix : prefixes) {
+            for (int limit : new int[] { 1, 3, TOP_K }) {
+                assertEquals(ranking(prefix, limit), index.suggest(prefix, limit), "prefix '" + prefix + "' limit " + limit);
+            }
+        }
+    }
+
+    // Every product with a word-start suffix beginning with the prefix, ranked; top-k of them, names deduplicated
+    private List<String> ranking(String prefix, int limit) {
+        String key = ProductSearchIndex.normalize(prefix);
+        List<ProductDetail> matches = new ArrayList<>();
+        for (ProductDetail product : reference.values()) {
+            String name = ProductSearchIndex.normalize(product.getName());
+            boolean match = name.startsWith(key);
+            for (int space = name.indexOf(' '); space >= 0 && !match; space = name.indexOf(' ', space + 1)) {
+                match = name.startsWith(key, space + 1);
+            }
+            if (match) {
+                matches.add(product);
+            }
+        }
+        matches.sort(Comparator.comparingDouble(ProductDetail::getRating).reversed()
+                .thenComparing(ProductDetail::getName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(ProductDetail::getId));
+        Set<String> names = new LinkedHashSet<>();
+        for (ProductDetail product : matches.subList(0, Math.min(TOP_K, matches.size()))) {
+            if (names.size() == limit) {
+                break;
+            }
+            names.add(product.getName());
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static ProductDetail randomProduct(long id, Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            name.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return product(id, name.toString(), RATINGS[random.nextInt(RATINGS.length)]);
+    }
+
+    private static ProductDetail product(Long id, String name, double rating) {
+        return new ProductDetail(id, name, "Puja", 100, 120, 5, null, null, rating);
+    }
+}
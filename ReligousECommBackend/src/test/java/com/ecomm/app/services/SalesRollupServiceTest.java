@@ -0,0 +1,317 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static com.ecomm.app.services.OrderFixtures.item;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecomm.app.dtos.OrderItemDto;
+import com.ecomm.app.dtos.OrderItemLine;
+import com.ecomm.app.dtos.OrderStatusStamp;
+import com.ecomm.app.dtos.OrderTransitionRequest;
+import com.ecomm.app.dtos.PlaceOrderRequest;
+import com.ecomm.app.dtos.SalesPoint;
+import com.ecomm.app.enums.OrderStatus;
+import com.ecomm.app.enums.PaymentMethod;
+import com.ecomm.app.enums.RollupGranularity;
+import com.ecomm.app.models.Order;
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.SalesRollup;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.OrderRepository;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.SalesRollupOrderRepository;
+import com.ecomm.app.repo.SalesRollupRepository;
+import com.ecomm.app.repo.UserRepository;
+
+// The rollups only ever change by deltas; after any mix of status changes they must still equal a recount
+@OrderPlacementTest
+@Import({SalesRollupService.class, OrderStatusService.class})
+class SalesRollupServiceTest {
+
+    private static final int ORDERS = 60;
+    private static final int ROUNDS = 5;
+    private static final int THREADS = 4;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 30, 21, 0);
+
+    @Autowired private SalesRollupService rollupService;
+    @Autowired private OrderService orderService;
+    @Autowired private OrderStatusService orderStatusService;
+    @Autowired private SalesRollupRepository rollupRepository;
+    @Autowired private SalesRollupOrderRepository markerRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private final Random random = new Random(42);
+    private final List<Long> productIds = new ArrayList<>();
+    private final List<String> orderIds = new ArrayList<>();
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository.deleteAll();
+        markerRepository.deleteAll();
+        orderRepository.deleteAll();
+        // Prices with odd cents, and categories that all end up as Uncategorized
+        product("Brass diya", "Diyas", 199.99);
+        product("Clay diya", "Diyas", 35.25);
+        product("Ganesha idol", "Idols", 1249.5);
+        product("Incense sticks", null, 10.1);
+        product("Camphor", " ", 0.35);
+        userId = userRepository.save(new User("rollups" + productIds.get(0) + "@example.com", "secret")).getId();
+
+        // Spread over three days, including hours either side of midnight
+        for (int i = 0; i < ORDERS; i++) {
+            String id = orderService.placeOrder(request(i)).getId();
+            LocalDateTime placedAt = START.plusHours(random.nextInt(60)).plusMinutes(random.nextInt(60));
+            boolean awaitingPayment = i % 9 == 0;
+            transactionTemplate.executeWithoutResult(status -> {
+                Order order = orderRepository.findById(id).orElseThrow();
+                order.setOrderDate(placedAt);
+                if (awaitingPayment) {
+                    order.setStatus(OrderStatus.PENDING_PAYMENT);
+                    order.setRazorpayPaymentId(null);
+                }
+                orderRepository.save(order);
+            });
+            orderIds.add(id);
+        }
+    }
+
+    @Test
+    void rollupsMatchARecountAfterEveryRound() {
+        assertEquals(countedOrders(), rollupService.apply(orderIds));
+        assertMatchesRecount();
+        assertEquals(0, rollupService.apply(orderIds), "nothing changed, nothing to apply");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            moveSomeOrders();
+            // A partial call first, as the outbox would deliver one event per transition chunk
+            List<String> some = new ArrayList<>(orderIds);
+            Collections.shuffle(some, random);
+            rollupService.apply(some.subList(0, some.size() / 3));
+            rollupService.apply(orderIds);
+            assertMatchesRecount();
+            assertEquals(0, rollupService.apply(orderIds));
+        }
+    }
+
+    @Test
+    void overlappingConcurrentCallsCountEveryOrderOnce() throws Exception {
+        rollupService.apply(orderIds.subList(0, ORDERS / 2));
+        moveSomeOrders();
+
+        // Every thread applies an overlapping, shuffled batch: redeliveries racing a backfill
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                List<String> batch = new ArrayList<>(orderIds);
+                Collections.shuffle(batch, new Random(t));
+                List<String> slice = batch.subList(0, ORDERS * 2 / 3);
+                results.add(pool.submit(() -> {
+                    start.await();
+                    applyWithRetry(slice);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        rollupService.apply(orderIds);
+
+        assertMatchesRecount();
+    }
+
+    @Test
+    void seriesReadTheTotals() {
+        rollupService.apply(orderIds);
+        Map<Key, long[]> expected = recount();
+
+        List<SalesPoint> days = rollupService.daily(START.toLocalDate(), START.toLocalDate().plusDays(3), null, false);
+        long orders = 0;
+        for (SalesPoint point : days) {
+            long[] totals = expected.get(new Key(RollupGranularity.DAY, point.getBucket(), SalesRollup.ALL));
+            assertEquals(totals[0], point.getOrders());
+            assertEquals(totals[1], point.getUnits());
+            assertEquals(totals[2] / 100.0, point.getRevenue(), 1e-9);
+            orders += point.getOrders();
+        }
+        assertEquals(countedOrders(), orders);
+
+        List<SalesPoint> uncategorized = rollupService.hourly(START, START.plusDays(3), null, true).stream()
+                .filter(point -> SalesRollupService.UNCATEGORIZED.equals(point.getCategory())).toList();
+        assertTrue(!uncategorized.isEmpty(), "null and blank categories roll up as " + SalesRollupService.UNCATEGORIZED);
+        assertTrue(rollupService.daily(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 2), "Diyas", false).isEmpty());
+    }
+
+    // Moves a random third of the orders one legal step on; refunds of unpaid cancellations get rejected
+    private void moveSomeOrders() {
+        Map<OrderStatus, List<String>> byTarget = new EnumMap<>(OrderStatus.class);
+        for (OrderStatusStamp stamp : orderRepository.findStatuses(orderIds)) {
+            if (random.nextInt(3) != 0) {
+                continue;
+            }
+            List<OrderStatus> next = new ArrayList<>();
+            for (OrderStatus target : OrderStatus.values()) {
+                if (stamp.getStatus().canTransitionTo(target)) {
+                    next.add(target);
+                }
+            }
+            if (!next.isEmpty()) {
+                byTarget.computeIfAbsent(next.get(random.nextInt(next.size())), k -> new ArrayList<>()).add(stamp.getId());
+            }
+        }
+        for (Map.Entry<OrderStatus, List<String>> entry : byTarget.entrySet()) {
+            OrderTransitionRequest request = new OrderTransitionRequest();
+            request.setOrderIds(entry.getValue());
+            request.setTarget(entry.getKey());
+            orderStatusService.transition(request);
+        }
+    }
+
+    // A first insert of the same bucket from two threads fails on the unique key; callers retry
+    private void applyWithRetry(List<String> ids) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                rollupService.apply(ids);
+                return;
+            } catch (DataAccessException e) {
+                if (attempt == 10) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void assertMatchesRecount() {
+        Map<Key, long[]> expected = recount();
+        Map<Key, long[]> actual = new TreeMap<>();
+        for (SalesRollup row : rollupRepository.findAll()) {
+            assertTrue(row.getOrderCount() >= 0 && row.getUnits() >= 0 && row.getRevenueCents() >= 0,
+                    "negative bucket " + row.getBucketStart() + " " + row.getCategory());
+            if (row.getOrderCount() != 0 || row.getUnits() != 0 || row.getRevenueCents() != 0) {
+                actual.put(new Key(row.getGranularity(), row.getBucketStart(), row.getCategory()),
+                        new long[] {row.getOrderCount(), row.getUnits(), row.getRevenueCents()});
+            }
+        }
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<Key, long[]> entry : expected.entrySet()) {
+            long[] want = entry.getValue();
+            long[] got = actual.get(entry.getKey());
+            assertEquals(want[0], got[0], "orders in " + entry.getKey());
+            assertEquals(want[1], got[1], "units in " + entry.getKey());
+            assertEquals(want[2], got[2], "cents in " + entry.getKey());
+        }
+    }
+
+    // Rollups rebuilt from scratch out of the orders as they are now
+    private Map<Key, long[]> recount() {
+        Map<String, LocalDateTime> sales = new HashMap<>();
+        for (String id : orderIds) {
+            Order order = orderRepository.findById(id).orElseThrow();
+            if (order.getStatus().isSale()) {
+                sales.put(id, order.getOrderDate());
+            }
+        }
+        Map<Key, long[]> expected = new TreeMap<>();
+        Map<String, Set<String>> categoriesByOrder = new HashMap<>();
+        for (OrderItemLine line : orderRepository.findItemLines(sales.keySet())) {
+            String category = line.getCategory() == null || line.getCategory().isBlank()
+                    ? SalesRollupService.UNCATEGORIZED : line.getCategory().trim();
+            boolean newCategory = categoriesByOrder.computeIfAbsent(line.getOrderId(), k -> new HashSet<>()).add(category);
+            long cents = Math.round(line.getPrice() * 100) * line.getQuantity();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                LocalDateTime bucket = granularity.bucketOf(sales.get(line.getOrderId()));
+                add(expected, new Key(granularity, bucket, category), newCategory ? 1 : 0, line.getQuantity(), cents);
+                add(expected, new Key(granularity, bucket, SalesRollup.ALL), 0, line.getQuantity(), cents);
+            }
+        }
+        for (LocalDateTime orderDate : sales.values()) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                add(expected, new Key(granularity, granularity.bucketOf(orderDate), SalesRollup.ALL), 1, 0, 0);
+            }
+        }
+        return expected;
+    }
+
+    private long countedOrders() {
+        return orderRepository.findStatuses(orderIds).stream().filter(stamp -> stamp.getStatus().isSale()).count();
+    }
+
+    private static void add(Map<Key, long[]> totals, Key key, long orders, long units, long cents) {
+        long[] total = totals.computeIfAbsent(key, k -> new long[3]);
+        total[0] += orders;
+        total[1] += units;
+        total[2] += cents;
+    }
+
+    private void product(String name, String category, double price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setPrice(price);
+        product.setStock(100_000);
+        productIds.add(productRepository.save(product).getId());
+    }
+
+    // One to three distinct products; every other order is paid online
+    private PlaceOrderRequest request(int i) {
+        List<Long> picked = new ArrayList<>(productIds);
+        Collections.shuffle(picked, random);
+        List<OrderItemDto> items = new ArrayList<>();
+        for (Long productId : picked.subList(0, 1 + random.nextInt(3))) {
+            items.add(item(productId, 1 + random.nextInt(4)));
+        }
+        PlaceOrderRequest request = OrderFixtures.request(userId, items);
+        if (i % 2 == 0) {
+            request.setPaymentMethod(PaymentMethod.RAZORPAY);
+            request.setRazorpayPaymentId("pay_" + i);
+        } else {
+            request.setPaymentMethod(PaymentMethod.COD);
+        }
+        return request;
+    }
+
+    private record Key(RollupGranularity granularity, LocalDateTime bucket, String category) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int c = granularity.compareTo(other.granularity);
+            if (c == 0) {
+                c = bucket.compareTo(other.bucket);
+            }
+            return c != 0 ? c : category.compareTo(other.category);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.ecomm.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ecomm.app.models.Product;
+import com.ecomm.app.models.User;
+import com.ecomm.app.repo.ProductRepository;
+import com.ecomm.app.repo.UserRepository;
+
+// A cart the DB refuses must not hold back the other carts in its flush batch
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "cart.store.mode=memory",
+        "cart.store.parked-retry-ms=0",
+        "cart.store.flush-interval-ms=3600000" // the test drives flush itself
+})
+@ImportAutoConfiguration(JdbcTemplateAutoConfiguration.class)
+@Import({CartService.class, WriteBehindCartStore.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WriteBehindCartStoreTest {
+
+    @Autowired private CartService cartService;
+    @Autowired private WriteBehindCartStore cartStore;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        cartStore.discardAll();
+        jdbcTemplate.update("delete from cart_item");
+        jdbcTemplate.update("delete from cart");
+        jdbcTemplate.update("delete from product");
+        jdbcTemplate.update("delete from users");
+    }
+
+    @Test
+    void deletedProductOnlyDropsItsOwnLine() {
+        Long diya = product("Brass diya");
+        Long incense = product("Sandal incense");
+        Long healthy = user("healthy@example.com");
+        Long poisoned = user("poisoned@example.com");
+        cartService.addToCart(healthy, diya, 2);
+        cartService.addToCart(poisoned, diya, 1);
+        cartService.addToCart(poisoned, incense, 3);
+        productRepository.deleteById(incense); // the poisoned cart's line now fails its foreign key
+
+        cartStore.flush();
+
+        assertEquals(Map.of(diya, 2), stored(healthy));
+        assertEquals(Map.of(diya, 1), stored(poisoned));
+        assertEquals(Map.of(diya, 1), cartStore.snapshot(poisoned).getLines());
+        assertEquals(0, cartStore.stats().getDirtyCarts());
+        assertEquals(0, cartStore.stats().getParkedCarts());
+        assertEquals(1, cartStore.stats().getDroppedLines());
+    }
+
+    @Test
+    void cartRowDeletedUnderTheStoreIsRecreated() {
+        Long diya = product("Brass diya");
+        Long incense = product("Sandal incense");
+        Long userId = user("reaped@example.com");
+        cartService.addToCart(userId, diya, 2);
+        cartStore.flush();
+        // What the reaper or an admin wipe does to the DB copy while the cart stays resident
+        jdbcTemplate.update("delete from cart_item");
+        jdbcTemplate.update("delete from cart");
+
+        cartService.addToCart(userId, incense, 1);
+        cartStore.flush();
+
+        assertEquals(Map.of(diya, 2, incense, 1), stored(userId));
+        assertEquals(0, cartStore.stats().getParkedCarts());
+    }
+
+    @Test
+    void unwritableCartIsParkedAndRetried() {
+        Long diya = product("Brass diya");
+        Long healthy = user("healthy@example.com");
+        Long ghost = user("ghost@example.com");
+        cartService.addToCart(healthy, diya, 1);
+        cartService.addToCart(ghost, diya, 4);
+        jdbcTemplate.update("delete from users where id = ?", ghost); // its cart row can never be created
+
+        cartStore.flush();
+        assertEquals(Map.of(diya, 1), stored(healthy));
+        assertEquals(1, cartStore.stats().getParkedCarts());
+
+        // A parked cart does not block later flushes
+        cartService.addToCart(healthy, diya, 1);
+        cartStore.flush();
+        assertEquals(Map.of(diya, 2), stored(healthy));
+
+        // Once the cause is gone the next retry writes it in full
+        jdbcTemplate.update("insert into users (id, email, password) values (?, ?, ?)", ghost, "ghost@example.com", "secret");
+        cartStore.flush();
+        assertEquals(Map.of(diya, 4), stored(ghost));
+        assertEquals(0, cartStore.stats().getParkedCarts());
+    }
+
+    private Long product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(199);
+        product.setStock(100);
+        return productRepository.save(product).getId();
+    }
+
+    private Long user(String email) {
+        return userRepository.save(new User(email, "secret")).getId();
+    }
+
+    private Map<Long, Integer> stored(Long userId) {
+        Map<Long, Integer> lines = new HashMap<>();
+        jdbcTemplate.query("select ci.product_id, ci.quantity from cart_item ci join cart c on c.id = ci.cart_id"
+                + " where c.user_id = ?", rs -> {
+                    lines.put(rs.getLong(1), rs.getInt(2));
+                }, userId);
+        return lines;
+    }
+}